@@ -0,0 +1,31 @@
+package cmu.edu.ds.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Registers Smile (application/x-jackson-smile) and CBOR (application/cbor)
+ * message converters next to the default JSON one.
+ * Controllers pick the format from the Accept and Content-Type headers. These beans
+ * replace Spring MVC's own Smile/CBOR converters in place, after JSON, so JSON stays
+ * the default for Accept: *&#47;*. Both mappers are built from the same Spring Boot builder as the JSON
+ * mapper, so property names such as "ISBN" and "Author" are identical in every format.
+ */
+@Configuration
+public class BinaryContentConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
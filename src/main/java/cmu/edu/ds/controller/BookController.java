@@ -30,16 +30,16 @@ public class BookController {
         return bookService.updateBook(isbn, book);
     }
 
-    // Get Book by ISBN
+    // Get Book by ISBN, optionally trimmed to ?fields=price,quantity
     @GetMapping("/{isbn}")
-    public ResponseEntity<?> getBookByIsbn(@PathVariable String isbn) {
-        return bookService.getBookByIsbn(isbn);
+    public ResponseEntity<?> getBookByIsbn(@PathVariable String isbn, @RequestParam(required = false) String fields) {
+        return bookService.getBookByIsbn(isbn, fields);
     }
 
     // Retrieve Book using alternate route (same response)
     @GetMapping("/isbn/{isbn}")
-    public ResponseEntity<?> getBookByIsbnAlternative(@PathVariable String isbn) {
-        return bookService.getBookByIsbn(isbn);
+    public ResponseEntity<?> getBookByIsbnAlternative(@PathVariable String isbn, @RequestParam(required = false) String fields) {
+        return bookService.getBookByIsbn(isbn, fields);
     }
 }
 
@@ -22,13 +22,13 @@ public class CustomerController {
 
     }
     @GetMapping("/{id}")
-    public ResponseEntity<?> getCustomerById(@PathVariable Long id) {
-        return customerService.getCustomerById(id);
+    public ResponseEntity<?> getCustomerById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        return customerService.getCustomerById(id, fields);
     }
 
     @GetMapping
-    public ResponseEntity<?> getCustomerByUserId(@RequestParam @Email String userId) {
-        return customerService.getCustomerByUserId(userId);
+    public ResponseEntity<?> getCustomerByUserId(@RequestParam @Email String userId, @RequestParam(required = false) String fields) {
+        return customerService.getCustomerByUserId(userId, fields);
     }
 }
 
@@ -0,0 +1,44 @@
+package cmu.edu.ds.controller;
+
+import cmu.edu.ds.repository.CustomerResharder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Operator endpoints for resharding the customers table.
+ * See {@link CustomerResharder} for the procedure.
+ */
+@RestController
+@RequestMapping("/internal/customer-shards")
+public class CustomerShardController {
+
+    @Autowired
+    private CustomerResharder customerResharder;
+
+    // Copy all rows from the source shards into the target shards (current shards when unset)
+    @PostMapping("/copy")
+    public ResponseEntity<?> copyToTargets(@RequestParam(defaultValue = "500") int batchSize) {
+        if (batchSize <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "batchSize must be positive"));
+        }
+        return ResponseEntity.ok(Map.of("copied", customerResharder.copyToTargets(batchSize)));
+    }
+
+    // Remove rows left behind on shards that no longer own them
+    @PostMapping("/cleanup")
+    public ResponseEntity<?> deleteMisplaced(@RequestParam(defaultValue = "500") int batchSize) {
+        if (batchSize <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "batchSize must be positive"));
+        }
+        return ResponseEntity.ok(Map.of("deleted", customerResharder.deleteMisplaced(batchSize)));
+    }
+}
@@ -1,5 +1,7 @@
 package cmu.edu.ds.controller;
 
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -29,6 +31,20 @@ public class GlobalExceptionHandler {
                 .body(Map.of("message", "An error occurred: " + ex.getMessage()));
     }
 
+    /**
+     * Handles writes rejected because the insert queue is full, or not confirmed
+     * within the timeout. Both are temporary server-side conditions, not bad requests;
+     * a timed-out write may still be committed, so clients should check before retrying.
+     *
+     * @param ex The exception that was thrown
+     * @return ResponseEntity with error message and SERVICE_UNAVAILABLE status
+     */
+    @ExceptionHandler({TransientDataAccessResourceException.class, QueryTimeoutException.class})
+    public ResponseEntity<Map<String, String>> handleUnavailable(RuntimeException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("message", "Service temporarily unavailable: " + ex.getMessage()));
+    }
+
     /**
      * Handles validation exceptions from @Valid annotations.
      *
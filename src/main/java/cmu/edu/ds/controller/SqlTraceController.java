@@ -0,0 +1,43 @@
+package cmu.edu.ds.controller;
+
+import cmu.edu.ds.tracing.SqlFingerprintStats;
+import cmu.edu.ds.tracing.SqlTrace;
+import cmu.edu.ds.tracing.SqlTraceRecorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Exposes the JDBC statement traces collected by {@link SqlTraceRecorder}.
+ */
+@RestController
+@RequestMapping("/internal/sql-traces")
+public class SqlTraceController {
+
+    @Autowired
+    private SqlTraceRecorder sqlTraceRecorder;
+
+    // Per-fingerprint aggregates, most expensive first
+    @GetMapping
+    public ResponseEntity<List<SqlFingerprintStats>> getAggregates() {
+        return ResponseEntity.ok(sqlTraceRecorder.aggregates());
+    }
+
+    // Sampled and slow statements from the ring buffer, oldest first
+    @GetMapping("/recent")
+    public ResponseEntity<List<SqlTrace>> getRecent() {
+        return ResponseEntity.ok(sqlTraceRecorder.recent());
+    }
+
+    // Reset the aggregates, e.g. between load-test runs
+    @DeleteMapping
+    public ResponseEntity<Void> resetAggregates() {
+        sqlTraceRecorder.resetAggregates();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -3,24 +3,96 @@ package cmu.edu.ds.repository;
 
 //import models.Books;
 import cmu.edu.ds.model.Books;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.ResultSet;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class BookRepository {
+    private static final Logger log = LoggerFactory.getLogger(BookRepository.class);
+
+    /**
+     * Fields that may be requested with ?fields=, named as in the full JSON response.
+     */
+    public static final FieldProjection BOOK_FIELDS = new FieldProjection("books", "ISBN = ?")
+            .field("ISBN", "ISBN", ResultSet::getString)
+            .field("title", "title", ResultSet::getString)
+            .field("Author", "author", ResultSet::getString)
+            .field("description", "description", ResultSet::getString)
+            .field("genre", "genre", ResultSet::getString)
+            .field("price", "price", ResultSet::getDouble)
+            .field("quantity", "quantity", ResultSet::getInt);
+
     // Spring JDBC Template for executing SQL queries
     private final JdbcTemplate jdbcTemplate;
 
+    // Groups concurrent inserts into one batch and one commit
+    private final GroupCommitWriter<Books> insertWriter;
+
+    // Answers "definitely absent" for unknown ISBNs without a database round trip
+    private final RefreshingKeyFilter isbnFilter;
+    private final boolean isbnFilterEnabled;
+
     /**
      * Constructor for dependency injection of JdbcTemplate.
      * @param jdbcTemplate The JDBC template to be used for database operations
+     * @param transactionTemplate Template used to commit each insert batch
+     * @param groupCommitProperties Settings for grouping inserts into one commit
+     * @param isbnFilterEnabled Whether lookups consult the ISBN Bloom filter
+     * @param expectedBooks Number of ISBNs the Bloom filter is sized for
+     * @param falsePositiveRate Target false-positive rate of the Bloom filter
      */
-    public BookRepository(JdbcTemplate jdbcTemplate) {
+    public BookRepository(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                          GroupCommitProperties groupCommitProperties,
+                          @Value("${bloom.enabled:true}") boolean isbnFilterEnabled,
+                          @Value("${bloom.books.expected-insertions:1000000}") long expectedBooks,
+                          @Value("${bloom.books.false-positive-rate:0.01}") double falsePositiveRate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.isbnFilter = new RefreshingKeyFilter(expectedBooks, falsePositiveRate);
+        this.isbnFilterEnabled = isbnFilterEnabled;
+        this.insertWriter = new GroupCommitWriter<>("books", "INSERT INTO books VALUES (?, ?, ?, ?, ?, ?, ?)",
+                book -> new Object[]{book.getISBN(), book.getTitle(), book.getAuthor(), book.getDescription(),
+                        book.getGenre(), book.getPrice(), book.getQuantity()},
+                jdbcTemplate, transactionTemplate, groupCommitProperties);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        insertWriter.close();
+    }
+
+    /**
+     * Rebuilds the ISBN Bloom filter with a streaming scan at startup and then every
+     * bloom.refresh-interval-ms, so books inserted by other instances or directly in
+     * the database are picked up. Lookups go to the database until the first scan completes.
+     */
+    @Scheduled(fixedDelayString = "${bloom.refresh-interval-ms:60000}")
+    public void refreshIsbnFilter() {
+        if (!isbnFilterEnabled) {
+            return;
+        }
+        // Integer.MIN_VALUE makes MySQL stream rows instead of buffering the whole result
+        JdbcTemplate scanTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        scanTemplate.setFetchSize(Integer.MIN_VALUE);
+        try {
+            isbnFilter.rebuild(sink -> scanTemplate.query("SELECT ISBN FROM books", rs -> {
+                sink.accept(rs.getString(1));
+            }));
+        } catch (DataAccessException e) {
+            log.warn("Could not rebuild ISBN Bloom filter, keeping the previous one", e);
+        }
     }
 
     /**
@@ -33,10 +105,16 @@ public class BookRepository {
             rs.getDouble("price"), rs.getInt("quantity")
     );
 
+    /**
+     * Inserts a book through the group-commit writer.
+     * @param book The book to insert
+     * @return The number of rows affected
+     * @throws org.springframework.dao.DuplicateKeyException If the ISBN already exists
+     */
     public int addBook(Books book) {
-        return jdbcTemplate.update("INSERT INTO books VALUES (?, ?, ?, ?, ?, ?, ?)",
-                book.getISBN(), book.getTitle(), book.getAuthor(), book.getDescription(),
-                book.getGenre(), book.getPrice(), book.getQuantity());
+        // Added before the insert so a committed row is never reported absent
+        isbnFilter.put(book.getISBN());
+        return insertWriter.write(book);
     }
 
     public int updateBook(Books book) {
@@ -44,11 +122,45 @@ public class BookRepository {
                 book.getTitle(), book.getAuthor(), book.getDescription(), book.getGenre(), book.getPrice(), book.getQuantity(), book.getISBN());
     }
 
+    /**
+     * Retrieves a book by ISBN, skipping the database when the Bloom filter rules the ISBN out.
+     * @param isbn The ISBN to look up
+     * @return The book, or null if no book has this ISBN
+     */
     public Books getBookByISBN(String isbn) {
+        if (!isbnFilter.mightContain(isbn)) {
+            return null;
+        }
+        return findBookByISBN(isbn);
+    }
+
+    /**
+     * Retrieves a book by ISBN from the database, ignoring the Bloom filter.
+     * Used where a stale filter must not turn an existing book into a 404, e.g. updates.
+     * @param isbn The ISBN to look up
+     * @return The book, or null if no book has this ISBN
+     */
+    public Books findBookByISBN(String isbn) {
         String sql = "SELECT * FROM books WHERE ISBN = ?";
         List<Books> books = jdbcTemplate.query(sql, new Object[]{isbn}, new BeanPropertyRowMapper<>(Books.class));
 
         return books.isEmpty() ? null : books.get(0);
     }
 
+    /**
+     * Retrieves only the requested fields of a book, selecting only their columns.
+     * @param isbn The ISBN to look up
+     * @param fields Canonical field names from {@link #BOOK_FIELDS}
+     * @return Field name to value, or null if no book has this ISBN
+     */
+    public Map<String, Object> getBookFieldsByISBN(String isbn, List<String> fields) {
+        if (!isbnFilter.mightContain(isbn)) {
+            return null;
+        }
+        List<Map<String, Object>> books = jdbcTemplate.query(BOOK_FIELDS.selectSql(fields),
+                BOOK_FIELDS.rowMapper(fields), isbn);
+
+        return books.isEmpty() ? null : books.get(0);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package cmu.edu.ds.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates customer ids of the form {@code (sequence << BUCKET_BITS) | bucket}.
+ * Sequence values come from a single customer_id_sequence row on shard 0 and are
+ * reserved in blocks, so only one round trip is made per block of inserts.
+ * Because the sequence is global, ids stay unique when buckets move between shards.
+ * <p>
+ * Rows created before sharding have plain auto-increment ids whose low bits are not
+ * their bucket. The sequence row records the first id this generator can produce
+ * ({@code legacy_id_limit}); ids below it are legacy ids and cannot be routed by id.
+ */
+@Component
+public class CustomerIdGenerator {
+
+    static final String CREATE_SEQUENCE_TABLE = "CREATE TABLE IF NOT EXISTS customer_id_sequence "
+            + "(id INT PRIMARY KEY, next_val BIGINT NOT NULL, legacy_id_limit BIGINT NOT NULL)";
+
+    private final CustomerShardRouter router;
+    private final int blockSize;
+
+    private boolean initialized;
+    private long next;
+    private long limit;
+
+    // -1 until the sequence row has been read
+    private volatile long legacyIdLimit = -1;
+
+    public CustomerIdGenerator(CustomerShardRouter router, CustomerShardingProperties properties) {
+        this.router = router;
+        this.blockSize = Math.max(1, properties.getIdBlockSize());
+    }
+
+    /**
+     * Returns a new customer id encoding the given bucket.
+     * @param bucket The bucket of the customer's userId
+     * @return A globally unique customer id
+     */
+    public long nextId(int bucket) {
+        return (nextSequence() << CustomerShardRouter.BUCKET_BITS) | bucket;
+    }
+
+    /**
+     * Returns whether an id was assigned before sharding, so its low bits do not encode its bucket.
+     * @param id The customer id
+     * @return True if the id must be looked up on every shard
+     */
+    public boolean isLegacyId(long id) {
+        long legacyLimit = legacyIdLimit;
+        if (legacyLimit < 0) {
+            legacyLimit = loadLegacyIdLimit();
+        }
+        return id < legacyLimit;
+    }
+
+    private synchronized long loadLegacyIdLimit() {
+        ensureInitialized();
+        return legacyIdLimit;
+    }
+
+    private synchronized long nextSequence() {
+        if (next >= limit) {
+            reserveBlock();
+        }
+        return next++;
+    }
+
+    private void reserveBlock() {
+        ensureInitialized();
+        CustomerShard sequenceShard = router.getShards().get(0);
+        Long start = sequenceShard.transactionTemplate().execute(status -> {
+            Long current = sequenceShard.jdbcTemplate().queryForObject(
+                    "SELECT next_val FROM customer_id_sequence WHERE id = 1 FOR UPDATE", Long.class);
+            sequenceShard.jdbcTemplate().update(
+                    "UPDATE customer_id_sequence SET next_val = ? WHERE id = 1", current + blockSize);
+            return current;
+        });
+        next = start;
+        limit = start + blockSize;
+    }
+
+    private synchronized void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        JdbcTemplate sequenceJdbc = router.getShards().get(0).jdbcTemplate();
+        initialize(sequenceJdbc);
+        legacyIdLimit = sequenceJdbc.queryForObject(
+                "SELECT legacy_id_limit FROM customer_id_sequence WHERE id = 1", Long.class);
+        initialized = true;
+    }
+
+    /**
+     * Creates and seeds the sequence row if it does not exist yet. The seed is
+     * chosen so that the first shifted id is above every existing id, which keeps
+     * new ids clear of rows inserted before sharding was introduced.
+     */
+    private void initialize(JdbcTemplate sequenceJdbc) {
+        sequenceJdbc.execute(CREATE_SEQUENCE_TABLE);
+        Integer rows = sequenceJdbc.queryForObject("SELECT COUNT(*) FROM customer_id_sequence", Integer.class);
+        if (rows != null && rows > 0) {
+            return;
+        }
+        long maxId = 0;
+        for (CustomerShard shard : router.getShards()) {
+            Long shardMax = shard.jdbcTemplate().queryForObject("SELECT COALESCE(MAX(id), 0) FROM customers", Long.class);
+            maxId = Math.max(maxId, shardMax == null ? 0 : shardMax);
+        }
+        long seed = (maxId >>> CustomerShardRouter.BUCKET_BITS) + 1;
+        try {
+            sequenceJdbc.update("INSERT INTO customer_id_sequence (id, next_val, legacy_id_limit) VALUES (1, ?, ?)",
+                    seed, seed << CustomerShardRouter.BUCKET_BITS);
+        } catch (DuplicateKeyException e) {
+            // Another instance seeded the sequence first
+        }
+    }
+
+    /**
+     * Copies the sequence row from one shard 0 to another, so a new shard 0 continues the
+     * sequence instead of reseeding it. The copied next_val is raised by
+     * {@code headroom} to cover blocks reserved between this copy and the cutover,
+     * and never lowered, so the copy can be repeated.
+     * @param source   The shard holding the sequence row to copy
+     * @param target   The shard that becomes shard 0 after resharding
+     * @param headroom Number of sequence values to skip on the target
+     */
+    public void copySequence(CustomerShard source, CustomerShard target, long headroom) {
+        ensureInitialized();
+        Map<String, Object> row = source.jdbcTemplate().queryForMap(
+                "SELECT next_val, legacy_id_limit FROM customer_id_sequence WHERE id = 1");
+        long nextVal = ((Number) row.get("next_val")).longValue() + headroom;
+        long legacyLimit = ((Number) row.get("legacy_id_limit")).longValue();
+
+        target.jdbcTemplate().execute(CREATE_SEQUENCE_TABLE);
+        target.transactionTemplate().executeWithoutResult(status -> {
+            List<Long> existing = target.jdbcTemplate().queryForList(
+                    "SELECT next_val FROM customer_id_sequence WHERE id = 1 FOR UPDATE", Long.class);
+            if (existing.isEmpty()) {
+                target.jdbcTemplate().update(
+                        "INSERT INTO customer_id_sequence (id, next_val, legacy_id_limit) VALUES (1, ?, ?)",
+                        nextVal, legacyLimit);
+            } else {
+                target.jdbcTemplate().update(
+                        "UPDATE customer_id_sequence SET next_val = ?, legacy_id_limit = ? WHERE id = 1",
+                        Math.max(existing.get(0), nextVal), legacyLimit);
+            }
+        });
+    }
+}
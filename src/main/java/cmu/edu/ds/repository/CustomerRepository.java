@@ -1,57 +1,226 @@
 package cmu.edu.ds.repository;
 
 import cmu.edu.ds.model.Customer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Customer storage, hash-sharded by userId across the datasources configured in
+ * {@link CustomerShardingProperties}. See {@link CustomerShardRouter} for the routing scheme.
+ */
 @Repository
 public class CustomerRepository {
-    private final JdbcTemplate jdbcTemplate;
+    private static final Logger log = LoggerFactory.getLogger(CustomerRepository.class);
+
+    static final String INSERT_SQL = "INSERT INTO customers (id, userId, name, phone, address, address2, city, state, zipcode) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     /**
-     * Constructor for dependency injection of JdbcTemplate.
-     * @param jdbcTemplate The JDBC template to be used for database operations
+     * Fields that may be requested with ?fields=, named as in the full JSON response.
+     * There is one projection per lookup column; both share the same whitelist.
      */
-    public CustomerRepository(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public static final FieldProjection CUSTOMER_FIELDS_BY_ID = customerFields("id = ?");
+    public static final FieldProjection CUSTOMER_FIELDS_BY_USER_ID = customerFields("userId = ?");
+
+    private final CustomerShardRouter shardRouter;
+    private final CustomerIdGenerator idGenerator;
+
+    // One group-commit writer per shard, indexed by shard index
+    private final List<GroupCommitWriter<Customer>> insertWriters;
+
+    // Answers "definitely absent" for unknown userIds without a database round trip
+    private final RefreshingKeyFilter userIdFilter;
+    private final boolean userIdFilterEnabled;
+
+    /**
+     * Constructor for dependency injection of the shard router.
+     * @param shardRouter Router selecting the shard for each customer
+     * @param idGenerator Generator for shard-encoded customer ids
+     * @param groupCommitProperties Settings for grouping inserts into one commit
+     * @param userIdFilterEnabled Whether lookups consult the userId Bloom filter
+     * @param expectedCustomers Number of userIds the Bloom filter is sized for
+     * @param falsePositiveRate Target false-positive rate of the Bloom filter
+     */
+    public CustomerRepository(CustomerShardRouter shardRouter, CustomerIdGenerator idGenerator,
+                              GroupCommitProperties groupCommitProperties,
+                              @Value("${bloom.enabled:true}") boolean userIdFilterEnabled,
+                              @Value("${bloom.customers.expected-insertions:1000000}") long expectedCustomers,
+                              @Value("${bloom.customers.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.shardRouter = shardRouter;
+        this.idGenerator = idGenerator;
+        this.userIdFilter = new RefreshingKeyFilter(expectedCustomers, falsePositiveRate);
+        this.userIdFilterEnabled = userIdFilterEnabled;
+        this.insertWriters = shardRouter.getShards().stream()
+                .map(shard -> new GroupCommitWriter<>("customers-shard-" + shard.index(), INSERT_SQL,
+                        CustomerRepository::insertArgs, shard.jdbcTemplate(), shard.transactionTemplate(),
+                        groupCommitProperties))
+                .toList();
     }
 
-    public int addCustomer(Customer customer) {
+    @PreDestroy
+    public void shutdown() {
+        insertWriters.forEach(GroupCommitWriter::close);
+    }
 
-        return jdbcTemplate.update("INSERT INTO customers (userId, name, phone, address, address2, city, state, zipcode) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
-                customer.getUserId(), customer.getName(), customer.getPhone(),
-                customer.getAddress(), customer.getAddress2(), customer.getCity(),
-                customer.getState(), customer.getZipcode());
+    /**
+     * Rebuilds the userId Bloom filter with a streaming scan of every shard at startup
+     * and then every bloom.refresh-interval-ms, so customers inserted by other instances
+     * or directly in the database are picked up. Lookups go to the database until the
+     * first scan completes.
+     */
+    @Scheduled(fixedDelayString = "${bloom.refresh-interval-ms:60000}")
+    public void refreshUserIdFilter() {
+        if (!userIdFilterEnabled) {
+            return;
+        }
+        try {
+            userIdFilter.rebuild(sink -> {
+                for (CustomerShard shard : shardRouter.getShards()) {
+                    // Integer.MIN_VALUE makes MySQL stream rows instead of buffering the whole result
+                    JdbcTemplate scanTemplate = new JdbcTemplate(shard.jdbcTemplate().getDataSource());
+                    scanTemplate.setFetchSize(Integer.MIN_VALUE);
+                    scanTemplate.query("SELECT userId FROM customers", rs -> {
+                        sink.accept(rs.getString(1));
+                    });
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not rebuild userId Bloom filter, keeping the previous one", e);
+        }
     }
 
+    /**
+     * Assigns the customer a shard-encoded id and inserts it into its shard
+     * through that shard's group-commit writer.
+     * @param customer The customer to insert; its id is set by this method
+     * @return The number of rows affected
+     * @throws org.springframework.dao.DuplicateKeyException If the userId already exists
+     */
+    public int addCustomer(Customer customer) {
+        int bucket = CustomerShardRouter.bucketForUserId(customer.getUserId());
+        customer.setId(idGenerator.nextId(bucket));
+        CustomerShard shard = shardRouter.shardForBucket(bucket);
+        // Added before the insert so a committed row is never reported absent
+        userIdFilter.put(customer.getUserId());
+        return insertWriters.get(shard.index()).write(customer);
+    }
+
+    /**
+     * Retrieves a customer by id from the shard encoded in the id.
+     * Ids assigned before sharding do not encode a shard and are looked up on every shard.
+     *
+     * @param id The customer id
+     * @return Optional containing the Customer
+     * @throws EmptyResultDataAccessException If no customer has this id
+     */
     public Optional<Customer> getCustomerById(long id) {
-        return Optional.ofNullable(jdbcTemplate.queryForObject("SELECT * FROM customers WHERE id=?", customerRowMapper, id));
+        String sql = "SELECT * FROM customers WHERE id=?";
+        if (isRoutableById(id)) {
+            CustomerShard shard = shardRouter.shardForId(id);
+            return Optional.ofNullable(shard.jdbcTemplate().queryForObject(sql, CUSTOMER_ROW_MAPPER, id));
+        }
+        for (CustomerShard shard : shardRouter.getShards()) {
+            List<Customer> customers = shard.jdbcTemplate().query(sql, CUSTOMER_ROW_MAPPER, id);
+            if (!customers.isEmpty()) {
+                return Optional.of(customers.get(0));
+            }
+        }
+        throw new EmptyResultDataAccessException(1);
+    }
+
+    private boolean isRoutableById(long id) {
+        return shardRouter.getShards().size() == 1 || !idGenerator.isLegacyId(id);
     }
 
     /**
      * Retrieves a customer from the database by their userId (likely a username or external ID).
      * Explicitly handles EmptyResultDataAccessException and returns an empty Optional.
+     * Skips the database entirely when the Bloom filter rules the userId out.
      *
      * @param userId The userId of the customer to retrieve
      * @return Optional containing the Customer if found, empty Optional if no match
      */
     public Optional<Customer> getCustomerByUserId(String userId) {
+        if (!userIdFilter.mightContain(userId)) {
+            return Optional.empty();
+        }
         String sql = "SELECT * FROM customers WHERE userId = ?";
+        CustomerShard shard = shardRouter.shardForUserId(userId);
 
         try {
-            return Optional.ofNullable(jdbcTemplate.queryForObject(sql, customerRowMapper, userId));
+            return Optional.ofNullable(shard.jdbcTemplate().queryForObject(sql, CUSTOMER_ROW_MAPPER, userId));
         } catch (EmptyResultDataAccessException e) {
             return Optional.empty(); // Return empty Optional if no result found
         }
     }
 
-    private final RowMapper<Customer> customerRowMapper = (rs, rowNum) -> new Customer(
+    /**
+     * Retrieves only the requested fields of a customer by id, selecting only their columns.
+     * @param id The customer id
+     * @param fields Canonical field names from {@link #CUSTOMER_FIELDS_BY_ID}
+     * @return Optional containing field name to value, empty if no match
+     */
+    public Optional<Map<String, Object>> getCustomerFieldsById(long id, List<String> fields) {
+        List<CustomerShard> shards = isRoutableById(id) ? List.of(shardRouter.shardForId(id)) : shardRouter.getShards();
+        for (CustomerShard shard : shards) {
+            List<Map<String, Object>> customers = shard.jdbcTemplate().query(CUSTOMER_FIELDS_BY_ID.selectSql(fields),
+                    CUSTOMER_FIELDS_BY_ID.rowMapper(fields), id);
+            if (!customers.isEmpty()) {
+                return Optional.of(customers.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Retrieves only the requested fields of a customer by userId, selecting only their columns.
+     * @param userId The userId of the customer
+     * @param fields Canonical field names from {@link #CUSTOMER_FIELDS_BY_USER_ID}
+     * @return Optional containing field name to value, empty if no match
+     */
+    public Optional<Map<String, Object>> getCustomerFieldsByUserId(String userId, List<String> fields) {
+        if (!userIdFilter.mightContain(userId)) {
+            return Optional.empty();
+        }
+        CustomerShard shard = shardRouter.shardForUserId(userId);
+        return shard.jdbcTemplate().query(CUSTOMER_FIELDS_BY_USER_ID.selectSql(fields),
+                CUSTOMER_FIELDS_BY_USER_ID.rowMapper(fields), userId).stream().findFirst();
+    }
+
+    private static FieldProjection customerFields(String whereClause) {
+        return new FieldProjection("customers", whereClause)
+                .field("id", "id", ResultSet::getLong)
+                .field("userId", "userId", ResultSet::getString)
+                .field("name", "name", ResultSet::getString)
+                .field("phone", "phone", ResultSet::getString)
+                .field("address", "address", ResultSet::getString)
+                .field("address2", "address2", ResultSet::getString)
+                .field("city", "city", ResultSet::getString)
+                .field("state", "state", ResultSet::getString)
+                .field("zipcode", "zipcode", ResultSet::getString);
+    }
+
+    static Object[] insertArgs(Customer customer) {
+        return new Object[]{customer.getId(), customer.getUserId(), customer.getName(), customer.getPhone(),
+                customer.getAddress(), customer.getAddress2(), customer.getCity(),
+                customer.getState(), customer.getZipcode()};
+    }
+
+    static final RowMapper<Customer> CUSTOMER_ROW_MAPPER = (rs, rowNum) -> new Customer(
             rs.getLong("id"),
             rs.getString("userId"), rs.getString("name"),
             rs.getString("phone"), rs.getString("address"), rs.getString("address2"),
             rs.getString("city"), rs.getString("state"), rs.getString("zipcode")
     );
-}
\ No newline at end of file
+}
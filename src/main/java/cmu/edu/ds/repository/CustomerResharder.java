@@ -0,0 +1,152 @@
+package cmu.edu.ds.repository;
+
+import cmu.edu.ds.model.Customer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Online resharding tool for the customers table.
+ * Resharding is done in these steps while the service keeps serving traffic:
+ * <ol>
+ *     <li>{@link #copyToTargets(int)} copies every row from the current shards into the
+ *     shards listed under customers.sharding.target-datasources, in keyset-paged batches.
+ *     Rows are upserted, so the copy can be re-run to pick up writes made during the previous pass.
+ *     The id sequence row is copied to the new shard 0 as well.</li>
+ *     <li>The target list becomes customers.sharding.datasources, the previous list becomes
+ *     customers.sharding.source-datasources, target-datasources is cleared, and every instance
+ *     is restarted.</li>
+ *     <li>Once no instance writes to the previous shards any more, {@link #copyToTargets(int)} is run
+ *     again. It now reads the previous shards and upserts into the current ones, catching up on
+ *     customers created there after the last copy pass. Customers are never updated, so
+ *     re-copying an existing row does not overwrite newer data.</li>
+ *     <li>source-datasources is cleared and {@link #deleteMisplaced(int)} removes rows from
+ *     shards that no longer own their bucket (when shards were reused).</li>
+ * </ol>
+ * Rows are placed by the bucket of their userId. Customers created before sharding was
+ * introduced keep their ids; those ids are below the sequence's legacy id limit and are
+ * looked up on every shard (see {@link CustomerIdGenerator#isLegacyId(long)}).
+ */
+@Component
+public class CustomerResharder {
+
+    private static final String UPSERT_SQL = CustomerRepository.INSERT_SQL
+            + " ON DUPLICATE KEY UPDATE userId = VALUES(userId), name = VALUES(name), phone = VALUES(phone),"
+            + " address = VALUES(address), address2 = VALUES(address2), city = VALUES(city),"
+            + " state = VALUES(state), zipcode = VALUES(zipcode)";
+
+    private final CustomerShardRouter shardRouter;
+    private final CustomerShardingProperties properties;
+    private final CustomerIdGenerator idGenerator;
+
+    // Source and target shard pools, opened on first use and closed with the router
+    private List<CustomerShard> sources;
+    private List<CustomerShard> targets;
+
+    public CustomerResharder(CustomerShardRouter shardRouter, CustomerShardingProperties properties,
+                             CustomerIdGenerator idGenerator) {
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Copies all rows and the id sequence from the source shards into the target shards.
+     * Either side defaults to the current shards when its list is not configured.
+     * @param batchSize Number of rows read and written per batch
+     * @return The number of rows copied
+     * @throws IllegalStateException If neither source-datasources nor target-datasources is configured
+     */
+    public long copyToTargets(int batchSize) {
+        if (properties.getSourceDatasources().isEmpty() && properties.getTargetDatasources().isEmpty()) {
+            throw new IllegalStateException(
+                    "No customers.sharding.target-datasources or customers.sharding.source-datasources configured");
+        }
+        List<CustomerShard> sources = sourceShards();
+        List<CustomerShard> targets = targetShards();
+        long copied = 0;
+        for (CustomerShard source : sources) {
+            long lastId = Long.MIN_VALUE;
+            List<Customer> page;
+            do {
+                page = readPage(source, lastId, batchSize);
+                Map<Integer, List<Customer>> byTarget = page.stream().collect(Collectors.groupingBy(
+                        customer -> CustomerShardRouter.shardIndexForBucket(
+                                CustomerShardRouter.bucketForUserId(customer.getUserId()), targets.size())));
+                for (Map.Entry<Integer, List<Customer>> entry : byTarget.entrySet()) {
+                    CustomerShard target = targets.get(entry.getKey());
+                    List<Object[]> args = entry.getValue().stream().map(CustomerRepository::insertArgs).toList();
+                    target.transactionTemplate().executeWithoutResult(
+                            status -> target.jdbcTemplate().batchUpdate(UPSERT_SQL, args));
+                }
+                copied += page.size();
+                if (!page.isEmpty()) {
+                    lastId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == batchSize);
+        }
+        idGenerator.copySequence(sources.get(0), targets.get(0), properties.getSequenceHeadroom());
+        return copied;
+    }
+
+    /**
+     * Deletes rows from the current shards whose userId bucket is owned by another shard.
+     * @param batchSize Number of rows scanned per batch
+     * @return The number of rows deleted
+     */
+    public long deleteMisplaced(int batchSize) {
+        List<CustomerShard> shards = shardRouter.getShards();
+        long deleted = 0;
+        for (CustomerShard shard : shards) {
+            long lastId = Long.MIN_VALUE;
+            List<Customer> page;
+            do {
+                page = readPage(shard, lastId, batchSize);
+                List<Object[]> misplaced = new ArrayList<>();
+                for (Customer customer : page) {
+                    int owner = CustomerShardRouter.shardIndexForBucket(
+                            CustomerShardRouter.bucketForUserId(customer.getUserId()), shards.size());
+                    if (owner != shard.index()) {
+                        misplaced.add(new Object[]{customer.getId()});
+                    }
+                }
+                if (!misplaced.isEmpty()) {
+                    shard.jdbcTemplate().batchUpdate("DELETE FROM customers WHERE id = ?", misplaced);
+                    deleted += misplaced.size();
+                }
+                if (!page.isEmpty()) {
+                    lastId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == batchSize);
+        }
+        return deleted;
+    }
+
+    private synchronized List<CustomerShard> sourceShards() {
+        if (properties.getSourceDatasources().isEmpty()) {
+            return shardRouter.getShards();
+        }
+        if (sources == null) {
+            sources = shardRouter.openShards(properties.getSourceDatasources());
+        }
+        return sources;
+    }
+
+    private synchronized List<CustomerShard> targetShards() {
+        if (properties.getTargetDatasources().isEmpty()) {
+            return shardRouter.getShards();
+        }
+        if (targets == null) {
+            targets = shardRouter.openShards(properties.getTargetDatasources());
+        }
+        return targets;
+    }
+
+    private List<Customer> readPage(CustomerShard shard, long afterId, int batchSize) {
+        return shard.jdbcTemplate().query("SELECT * FROM customers WHERE id > ? ORDER BY id LIMIT ?",
+                CustomerRepository.CUSTOMER_ROW_MAPPER, afterId, batchSize);
+    }
+}
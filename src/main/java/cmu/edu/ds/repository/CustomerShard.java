@@ -0,0 +1,14 @@
+package cmu.edu.ds.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One datasource holding a slice of the customers table.
+ *
+ * @param index               Position of the shard in the configured shard list
+ * @param jdbcTemplate        Template for queries against this shard
+ * @param transactionTemplate Template for transactions against this shard
+ */
+public record CustomerShard(int index, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+}
@@ -0,0 +1,137 @@
+package cmu.edu.ds.repository;
+
+import cmu.edu.ds.tracing.SqlTraceRecorder;
+import cmu.edu.ds.tracing.TracingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Routes customer rows to shards.
+ * A customer's userId hashes to one of {@link #BUCKETS} fixed buckets, and each
+ * shard owns a contiguous range of buckets. The bucket is also stored in the low
+ * bits of the customer id, so a lookup by id or by userId touches exactly one
+ * shard, and ids stay valid when buckets are moved to a different number of shards.
+ */
+@Component
+public class CustomerShardRouter {
+
+    public static final int BUCKET_BITS = 10;
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+
+    private final List<CustomerShard> shards;
+    private final List<HikariDataSource> ownedDataSources = new ArrayList<>();
+    private final SqlTraceRecorder traceRecorder;
+
+    /**
+     * @param jdbcTemplate        Template for the primary datasource, used when no shards are configured
+     * @param transactionTemplate Transaction template for the primary datasource
+     * @param properties          Sharding configuration
+     * @param traceRecorder       Recorder used to trace the shard datasources when SQL tracing is enabled
+     * @param tracingEnabled      Whether SQL tracing is enabled
+     */
+    public CustomerShardRouter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               CustomerShardingProperties properties,
+                               ObjectProvider<SqlTraceRecorder> traceRecorder,
+                               @Value("${sql.trace.enabled:true}") boolean tracingEnabled) {
+        this.traceRecorder = tracingEnabled ? traceRecorder.getIfAvailable() : null;
+        if (properties.getDatasources().isEmpty()) {
+            this.shards = List.of(new CustomerShard(0, jdbcTemplate, transactionTemplate));
+        } else {
+            this.shards = openShards(properties.getDatasources());
+        }
+    }
+
+    /**
+     * Opens connection pools for the given shard datasources.
+     * The pools are closed together with the router.
+     * @param dataSources Shard datasources, in shard-index order
+     * @return One shard per datasource
+     */
+    public synchronized List<CustomerShard> openShards(List<CustomerShardingProperties.ShardDataSource> dataSources) {
+        List<CustomerShard> opened = new ArrayList<>(dataSources.size());
+        for (int i = 0; i < dataSources.size(); i++) {
+            CustomerShardingProperties.ShardDataSource config = dataSources.get(i);
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(config.getUrl())
+                    .username(config.getUsername())
+                    .password(config.getPassword())
+                    .build();
+            pool.setMaximumPoolSize(config.getMaximumPoolSize());
+            pool.setPoolName("customers-shard-" + i);
+            ownedDataSources.add(pool);
+
+            DataSource dataSource = traceRecorder != null ? new TracingDataSource(pool, traceRecorder) : pool;
+            opened.add(new CustomerShard(i, new JdbcTemplate(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+        }
+        return List.copyOf(opened);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        ownedDataSources.forEach(HikariDataSource::close);
+        ownedDataSources.clear();
+    }
+
+    public List<CustomerShard> getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the bucket of a userId. The hash is case-insensitive because the
+     * userId column is compared case-insensitively by MySQL.
+     * @param userId The customer's userId
+     * @return Bucket in the range [0, BUCKETS)
+     */
+    public static int bucketForUserId(String userId) {
+        CRC32 crc = new CRC32();
+        crc.update(userId.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() & (BUCKETS - 1));
+    }
+
+    /**
+     * Returns the bucket encoded in a customer id.
+     * @param id The customer id
+     * @return Bucket in the range [0, BUCKETS)
+     */
+    public static int bucketForId(long id) {
+        return (int) (id & (BUCKETS - 1));
+    }
+
+    /**
+     * Returns the index of the shard owning a bucket, for a given number of shards.
+     * @param bucket The bucket
+     * @param shardCount The number of shards
+     * @return Shard index in the range [0, shardCount)
+     */
+    public static int shardIndexForBucket(int bucket, int shardCount) {
+        return (int) ((long) bucket * shardCount / BUCKETS);
+    }
+
+    public CustomerShard shardForBucket(int bucket) {
+        return shards.get(shardIndexForBucket(bucket, shards.size()));
+    }
+
+    public CustomerShard shardForUserId(String userId) {
+        return shardForBucket(bucketForUserId(userId));
+    }
+
+    public CustomerShard shardForId(long id) {
+        return shardForBucket(bucketForId(id));
+    }
+}
@@ -0,0 +1,53 @@
+package cmu.edu.ds.repository;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datasources holding the customers table.
+ * When no datasources are configured, the primary spring.datasource is used as a single shard.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "customers.sharding")
+public class CustomerShardingProperties {
+
+    /**
+     * Current shards, in shard-index order. The order must not change between restarts.
+     */
+    private List<ShardDataSource> datasources = new ArrayList<>();
+
+    /**
+     * Shards to copy into when running the resharding tool. When unset, the current shards are the target.
+     */
+    private List<ShardDataSource> targetDatasources = new ArrayList<>();
+
+    /**
+     * Shards to copy from when running the resharding tool. When unset, the current shards are the source.
+     * Set to the previous shard list after a cutover to copy rows written there after the last copy pass.
+     */
+    private List<ShardDataSource> sourceDatasources = new ArrayList<>();
+
+    /**
+     * Number of customer ids reserved from the id sequence per round trip.
+     */
+    private int idBlockSize = 100;
+
+    /**
+     * Number of sequence values skipped when the id sequence is copied to a new shard 0,
+     * covering blocks reserved by running instances between the last copy and the cutover.
+     */
+    private long sequenceHeadroom = 100_000;
+
+    @Data
+    public static class ShardDataSource {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
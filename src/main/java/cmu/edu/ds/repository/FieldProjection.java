@@ -0,0 +1,129 @@
+package cmu.edu.ds.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Whitelist of fields a client may request with ?fields=, and the column each one is read from.
+ * Requested fields are pushed down into the SELECT column list; the generated
+ * statement is cached per field combination.
+ */
+public final class FieldProjection {
+
+    /**
+     * Reads one column from the current row.
+     */
+    @FunctionalInterface
+    public interface ColumnReader {
+        Object read(ResultSet rs, String column) throws SQLException;
+    }
+
+    private record Field(String name, String column, ColumnReader reader) {
+    }
+
+    private final String table;
+    private final String whereClause;
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+    private final Map<String, Field> fieldsByLowerCaseName = new HashMap<>();
+    private final Map<List<String>, String> sqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * @param table       Table to select from
+     * @param whereClause Condition appended to every statement, e.g. "ISBN = ?"
+     */
+    public FieldProjection(String table, String whereClause) {
+        this.table = table;
+        this.whereClause = whereClause;
+    }
+
+    /**
+     * Adds a field to the whitelist. Fields are returned in the order they are added.
+     * @param name   Field name as it appears in the JSON response
+     * @param column Column the field is read from
+     * @param reader Reads the column with the same type as the full response uses
+     * @return This projection
+     */
+    public FieldProjection field(String name, String column, ColumnReader reader) {
+        Field field = new Field(name, column, reader);
+        fields.put(name, field);
+        fieldsByLowerCaseName.put(name.toLowerCase(Locale.ROOT), field);
+        return this;
+    }
+
+    /**
+     * Parses a comma-separated ?fields= value against the whitelist.
+     * Field names are matched case-insensitively and duplicates are ignored.
+     * @param requested The raw parameter value
+     * @return Canonical field names, in whitelist order
+     * @throws IllegalArgumentException If the value is empty or names a field outside the whitelist
+     */
+    public List<String> parse(String requested) {
+        List<String> selected = new ArrayList<>();
+        for (String part : requested.split(",")) {
+            String name = part.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Field field = fieldsByLowerCaseName.get(name.toLowerCase(Locale.ROOT));
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field '" + name + "'. Allowed fields: " + fields.keySet());
+            }
+            if (!selected.contains(field.name())) {
+                selected.add(field.name());
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be requested. Allowed fields: " + fields.keySet());
+        }
+        List<String> ordered = new ArrayList<>(selected.size());
+        for (String name : fields.keySet()) {
+            if (selected.contains(name)) {
+                ordered.add(name);
+            }
+        }
+        return List.copyOf(ordered);
+    }
+
+    /**
+     * Returns the SELECT statement for the given fields.
+     * @param selected Canonical field names as returned by {@link #parse(String)}
+     * @return The cached statement selecting only the needed columns
+     */
+    public String selectSql(List<String> selected) {
+        return sqlCache.computeIfAbsent(selected, key -> {
+            StringBuilder sql = new StringBuilder("SELECT ");
+            for (int i = 0; i < key.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(fields.get(key.get(i)).column());
+            }
+            return sql.append(" FROM ").append(table).append(" WHERE ").append(whereClause).toString();
+        });
+    }
+
+    /**
+     * Returns a row mapper producing a map of field name to value, in field order.
+     * @param selected Canonical field names as returned by {@link #parse(String)}
+     * @return Row mapper for statements produced by {@link #selectSql(List)}
+     */
+    public RowMapper<Map<String, Object>> rowMapper(List<String> selected) {
+        return (rs, rowNum) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String name : selected) {
+                Field field = fields.get(name);
+                row.put(name, field.reader().read(rs, field.column()));
+            }
+            return row;
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package cmu.edu.ds.repository;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the {@link GroupCommitWriter}s behind POST /books and POST /customers.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "insert.group-commit")
+public class GroupCommitProperties {
+
+    /**
+     * Maximum number of rows written in one batch and one commit.
+     */
+    private int maxBatchSize = 50;
+
+    /**
+     * Maximum time a row waits for others to join its batch.
+     */
+    private long maxDelayMs = 2;
+
+    /**
+     * Maximum number of rows waiting to be written; further inserts fail immediately.
+     */
+    private int maxQueueSize = 10_000;
+
+    /**
+     * Maximum time a caller waits for its row to be written. Should exceed the pool's connection timeout.
+     */
+    private long timeoutMs = 30_000;
+}
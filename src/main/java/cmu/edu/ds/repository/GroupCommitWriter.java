@@ -0,0 +1,214 @@
+package cmu.edu.ds.repository;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Collects single-row inserts from concurrent callers and writes them as one
+ * JDBC batch inside one transaction.
+ * A batch is flushed once it reaches the configured size or once the configured
+ * delay has passed since its first row arrived. Every caller receives its own
+ * outcome through a {@link CompletableFuture}.
+ * The queue is bounded and callers wait at most the configured timeout, so a
+ * stalled database surfaces as an error instead of piling up request threads.
+ *
+ * @param <T> The type of row being inserted
+ */
+public class GroupCommitWriter<T> implements AutoCloseable {
+
+    private final String sql;
+    private final Function<T, Object[]> binder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutMillis;
+
+    private final BlockingQueue<PendingWrite<T>> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    /**
+     * @param name                Name used for the flusher thread
+     * @param sql                 Single-row INSERT statement
+     * @param binder              Maps a row to the statement's bind arguments
+     * @param jdbcTemplate        Template used to execute the inserts
+     * @param transactionTemplate Template wrapping each batch in one transaction
+     * @param properties          Batch size, delay, queue size and timeout settings
+     */
+    public GroupCommitWriter(String name, String sql, Function<T, Object[]> binder,
+                             JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             GroupCommitProperties properties) {
+        this.sql = sql;
+        this.binder = binder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getMaxDelayMs());
+        this.timeoutMillis = properties.getTimeoutMs();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getMaxQueueSize()));
+        this.flusher = new Thread(this::runFlusher, name + "-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues a row for insertion.
+     * @param row The row to insert
+     * @return Future completed with the affected row count, or exceptionally with
+     *         the DataAccessException raised for this row (e.g. DuplicateKeyException)
+     */
+    public CompletableFuture<Integer> submit(T row) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new DataAccessResourceFailureException("Insert writer has been closed"));
+        }
+        PendingWrite<T> pending = new PendingWrite<>(row, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            return CompletableFuture.failedFuture(new TransientDataAccessResourceException("Insert queue is full"));
+        }
+        if (!running) {
+            // close() may have drained the queue before this row was added
+            failQueued();
+        }
+        return pending.result();
+    }
+
+    /**
+     * Queues a row for insertion and waits for its outcome.
+     * @param row The row to insert
+     * @return The affected row count
+     * @throws RuntimeException The exception raised for this row, unwrapped from the future
+     * @throws QueryTimeoutException If the row was not written within the timeout; it may still be written later
+     */
+    public int write(T row) {
+        try {
+            return submit(row).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Insert failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Insert was not written within " + timeoutMillis + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for insert", e);
+        }
+    }
+
+    /**
+     * Stops accepting rows, flushes whatever is queued, stops the flusher thread
+     * and fails anything still left in the queue.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued();
+    }
+
+    private void failQueued() {
+        PendingWrite<T> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new DataAccessResourceFailureException("Insert writer has been closed"));
+        }
+    }
+
+    private void runFlusher() {
+        List<PendingWrite<T>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite<T> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            } catch (Throwable e) {
+                // Never let the flusher die: callers would wait on futures nobody completes
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite<T>> batch) {
+        if (batch.size() == 1) {
+            writeIndividually(batch);
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (PendingWrite<T> pending : batch) {
+            args.add(binder.apply(pending.row()));
+        }
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(sql, args));
+        } catch (RuntimeException e) {
+            if (isRowSpecific(e)) {
+                // One bad row (typically a duplicate key) rolls back the whole batch,
+                // so retry each row on its own to give every caller its own outcome.
+                writeIndividually(batch);
+            } else {
+                // Connection, timeout and other failures would fail each row the same way
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            int count = counts == null || counts[i] == Statement.SUCCESS_NO_INFO ? 1 : counts[i];
+            batch.get(i).result().complete(count);
+        }
+    }
+
+    private static boolean isRowSpecific(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException || e.getCause() instanceof BatchUpdateException;
+    }
+
+    private void writeIndividually(List<PendingWrite<T>> batch) {
+        for (PendingWrite<T> pending : batch) {
+            try {
+                pending.result().complete(jdbcTemplate.update(sql, binder.apply(pending.row())));
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private record PendingWrite<T>(T row, CompletableFuture<Integer> result) {
+    }
+}
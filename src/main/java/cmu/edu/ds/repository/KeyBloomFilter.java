@@ -0,0 +1,107 @@
+package cmu.edu.ds.repository;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of string keys, used to answer "definitely absent"
+ * without a database round trip.
+ * Keys are lower-cased because MySQL compares the key columns case-insensitively.
+ */
+public class KeyBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions Number of keys the filter is sized for
+     * @param falsePositiveRate  Target false-positive rate at that number of keys, e.g. 0.01
+     */
+    public KeyBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+        long optimalBits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Adds a key.
+     * @param key The key to add
+     */
+    public void put(String key) {
+        long hash = hash(key);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Adds every key of another filter created with the same settings.
+     * @param other The filter to merge into this one
+     */
+    public void putAll(KeyBloomFilter other) {
+        if (other.bitCount != bitCount || other.hashCount != hashCount) {
+            throw new IllegalArgumentException("Bloom filters have different sizes");
+        }
+        for (int word = 0; word < bits.length(); word++) {
+            long mask = other.bits.get(word);
+            if (mask != 0) {
+                long current = bits.get(word);
+                while ((current & mask) != mask && !bits.compareAndSet(word, current, current | mask)) {
+                    current = bits.get(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns false only if the key was definitely never added.
+     * @param key The key to look up
+     * @return Whether the key may be present
+     */
+    public boolean mightContain(String key) {
+        if (key == null) {
+            return true;
+        }
+        long hash = hash(key);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the lower-cased key
+    private static long hash(String key) {
+        String normalized = key.toLowerCase(Locale.ROOT);
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            h ^= normalized.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // SplitMix64 finalizer, spreads the FNV bits across the whole word
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,121 @@
+package cmu.edu.ds.repository;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * A {@link KeyBloomFilter} that is rebuilt from a full key scan and swapped in atomically.
+ * Periodic rebuilds pick up rows written by other application instances or directly
+ * in the database, so such rows are reported absent for at most one refresh interval.
+ * Until the first rebuild completes, every key is reported as possibly present and
+ * callers fall back to the database.
+ */
+public class RefreshingKeyFilter {
+
+    /**
+     * Streams every existing key into the given sink.
+     */
+    @FunctionalInterface
+    public interface KeyScanner {
+        void scan(Consumer<String> sink);
+    }
+
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    // Held shared by put and exclusively while a rebuild starts or swaps, so no put can
+    // read the filters before a rebuild starts and write them after it has swapped
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Filter answering lookups; null until the first rebuild completes
+    private volatile KeyBloomFilter current;
+    // Filter being rebuilt; local inserts are added to it so they survive the swap
+    private KeyBloomFilter building;
+    // Keys put since the last rebuild started. Their inserts may not have been committed
+    // when the next scan read the table, so they are merged into the next filter.
+    private KeyBloomFilter recent;
+
+    /**
+     * @param expectedInsertions Number of keys each filter is sized for
+     * @param falsePositiveRate  Target false-positive rate at that number of keys
+     */
+    public RefreshingKeyFilter(long expectedInsertions, double falsePositiveRate) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.recent = newFilter();
+    }
+
+    /**
+     * Returns false only if the key was definitely absent at the last rebuild and
+     * has not been inserted through this instance since.
+     * @param key The key to look up
+     * @return Whether the key may be present
+     */
+    public boolean mightContain(String key) {
+        KeyBloomFilter filter = current;
+        return filter == null || filter.mightContain(key);
+    }
+
+    /**
+     * Adds a key inserted through this instance.
+     * @param key The key to add
+     */
+    public void put(String key) {
+        lock.readLock().lock();
+        try {
+            KeyBloomFilter filter = current;
+            if (filter != null) {
+                filter.put(key);
+            }
+            if (building != null) {
+                building.put(key);
+            }
+            recent.put(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a fresh filter from a full scan and swaps it in. If the scan throws,
+     * the previous filter stays in place.
+     * @param scanner Streams every existing key
+     */
+    public synchronized void rebuild(KeyScanner scanner) {
+        KeyBloomFilter fresh = newFilter();
+        KeyBloomFilter localKeys;
+        lock.writeLock().lock();
+        try {
+            building = fresh;
+            localKeys = recent;
+            recent = newFilter();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        boolean scanned = false;
+        try {
+            scanner.scan(fresh::put);
+            fresh.putAll(localKeys);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    current = fresh;
+                } else {
+                    // Keep them for the next attempt
+                    recent.putAll(localKeys);
+                }
+                building = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private KeyBloomFilter newFilter() {
+        return new KeyBloomFilter(expectedInsertions, falsePositiveRate);
+    }
+}
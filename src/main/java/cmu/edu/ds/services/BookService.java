@@ -11,6 +11,7 @@ import cmu.edu.ds.repository.BookRepository;
 import jakarta.validation.Valid;
 //import models.Books;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -19,6 +20,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -32,6 +34,16 @@ public class BookService {
     @Autowired(required = true)
     private BookRepository bookRepository;
 
+    /**
+     * Adds a new book if the ISBN doesn't already exist.
+     * Inserts are group-committed: a full insert queue or an insert not confirmed within
+     * the timeout surfaces as 503. After a timeout the book may still be written, so a
+     * client retrying the same ISBN can receive 422.
+     *
+     * @param book The book to add
+     * @param uriBuilder Builder for creating the location URI in the response
+     * @return 201 with the book, or 422 if the ISBN already exists
+     */
     public ResponseEntity<?> addBook(@Valid @RequestBody Books book, UriComponentsBuilder uriBuilder) {
         // Check if the ISBN already exists
         Optional<Books> existingBook = Optional.ofNullable(bookRepository.getBookByISBN(book.getISBN()));
@@ -41,7 +53,14 @@ public class BookService {
             return ResponseEntity.status(422).body(errorResponse);
         }
 
-        bookRepository.addBook(book);
+        try {
+            bookRepository.addBook(book);
+        } catch (DuplicateKeyException e) {
+            // A concurrent request inserted the same ISBN after our check
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("message", "This ISBN already exists in the system.");
+            return ResponseEntity.status(422).body(errorResponse);
+        }
 
         URI location = uriBuilder
                 .path("/books/{isbn}")
@@ -59,7 +78,8 @@ public class BookService {
             return ResponseEntity.status(400).body("ISBN does not match.");
         }
 
-        Optional<Books> existingBook = Optional.ofNullable(bookRepository.getBookByISBN(isbn));
+        // Skips the Bloom filter: a book added through another instance may not be in it yet
+        Optional<Books> existingBook = Optional.ofNullable(bookRepository.findBookByISBN(isbn));
         if (!existingBook.isPresent()) {
             return ResponseEntity.status(404).body("ISBN not found.");
         }
@@ -83,4 +103,29 @@ public class BookService {
         }
         return ResponseEntity.status(200).body(book);
     }
+
+    /**
+     * Retrieves a book, returning only the requested fields when a ?fields= value is given.
+     * Only the columns for those fields are selected from the database.
+     *
+     * @param isbn The ISBN to look up
+     * @param fields Comma-separated field names, or null for the full book
+     * @return 200 with the (trimmed) book, 400 for an unknown field, 404 if the ISBN does not exist
+     */
+    public ResponseEntity<?> getBookByIsbn(String isbn, String fields) {
+        if (fields == null) {
+            return getBookByIsbn(isbn);
+        }
+        List<String> selected;
+        try {
+            selected = BookRepository.BOOK_FIELDS.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("message", e.getMessage()));
+        }
+        Map<String, Object> book = bookRepository.getBookFieldsByISBN(isbn, selected);
+        if (book == null) {
+            return ResponseEntity.status(404).body("ISBN not found.");
+        }
+        return ResponseEntity.status(200).body(book);
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ package cmu.edu.ds.services;
 import cmu.edu.ds.model.Customer;
 import cmu.edu.ds.repository.CustomerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -38,6 +39,10 @@ public class CustomerService {
      *         - 201 Created with location header and customer data if successful
      *         - 422 Unprocessable Entity with error message if userId already exists
      * @throws RuntimeException If the database operation fails to insert the customer
+     * @throws org.springframework.dao.TransientDataAccessResourceException If the insert queue is full;
+     *         the customer was not written (mapped to 503)
+     * @throws org.springframework.dao.QueryTimeoutException If the insert was not confirmed in time;
+     *         the customer may still be written afterwards (mapped to 503)
      */
     public ResponseEntity<?> addCustomer(Customer customer, UriComponentsBuilder uriBuilder) {
         // Check if the userId already exists
@@ -48,11 +53,19 @@ public class CustomerService {
             return ResponseEntity.status(422).body(errorResponse);
         }
 
-        int rowsAffected = customerRepository.addCustomer(customer);
+        int rowsAffected;
+        try {
+            rowsAffected = customerRepository.addCustomer(customer);
+        } catch (DuplicateKeyException e) {
+            // A concurrent request inserted the same userId after our check
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("message", "This user ID already exists in the system.");
+            return ResponseEntity.status(422).body(errorResponse);
+        }
 
         if (rowsAffected > 0) {
-            long id = customerRepository.getCustomerByUserId(customer.getUserId()).get().getId();
-            customer.setId(id);
+            // The repository assigns the shard-encoded id before inserting
+            long id = customer.getId();
 
             URI location = uriBuilder
                     .path("/customers/{id}")
@@ -111,6 +124,63 @@ public class CustomerService {
                         .body(Map.of("error", "Customer not found")));
     }
 
+    /**
+     * Retrieves a customer by id, returning only the requested fields when a ?fields= value is given.
+     * Only the columns for those fields are selected from the database.
+     *
+     * @param id The customer id
+     * @param fields Comma-separated field names, or null for the full customer
+     * @return 200 with the (trimmed) customer, 400 for an invalid id or unknown field, 404 if not found
+     */
+    public ResponseEntity<?> getCustomerById(Long id, String fields) {
+        if (fields == null) {
+            return getCustomerById(id);
+        }
+        if (id == null || id <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Invalid customer ID"));
+        }
+        List<String> selected;
+        try {
+            selected = CustomerRepository.CUSTOMER_FIELDS_BY_ID.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
 
+        return customerRepository.getCustomerFieldsById(id, selected)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body("Customer with ID " + id + " not found."));
+    }
 
-}
\ No newline at end of file
+    /**
+     * Retrieves a customer by userId, returning only the requested fields when a ?fields= value is given.
+     * Only the columns for those fields are selected from the database.
+     *
+     * @param userId The userId of the customer
+     * @param fields Comma-separated field names, or null for the full customer
+     * @return 200 with the (trimmed) customer, 400 for an invalid userId or unknown field, 404 if not found
+     */
+    public ResponseEntity<?> getCustomerByUserId(String userId, String fields) {
+        if (fields == null) {
+            return getCustomerByUserId(userId);
+        }
+        if (userId == null || userId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Invalid customer ID"));
+        }
+        List<String> selected;
+        try {
+            selected = CustomerRepository.CUSTOMER_FIELDS_BY_USER_ID.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+
+        return customerRepository.getCustomerFieldsByUserId(userId, selected)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Customer not found")));
+    }
+}
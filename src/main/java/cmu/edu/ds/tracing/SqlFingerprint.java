@@ -0,0 +1,53 @@
+package cmu.edu.ds.tracing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL text into a fingerprint so that statements differing only in
+ * literal values or whitespace are aggregated together.
+ */
+public final class SqlFingerprint {
+
+    private static final int MAX_CACHED = 10_000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Repository SQL is built from constant strings, so the cache hit rate is
+     * effectively 100% and the regex work happens once per distinct statement.
+     */
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private SqlFingerprint() {
+    }
+
+    /**
+     * Returns the fingerprint of the given SQL text.
+     * @param sql The raw SQL text
+     * @return The normalized fingerprint
+     */
+    public static String of(String sql) {
+        if (sql == null) {
+            return "<unknown>";
+        }
+        String cached = CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String fingerprint = normalize(sql);
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.putIfAbsent(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    private static String normalize(String sql) {
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,79 @@
+package cmu.edu.ds.tracing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running aggregates for one SQL fingerprint.
+ * Updated on every execution regardless of sampling, using striped counters
+ * so concurrent request threads do not contend on a single cache line.
+ */
+public class SqlFingerprintStats {
+
+    private final String fingerprint;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder slowCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder execMicros = new LongAdder();
+    private final LongAdder acquireMicros = new LongAdder();
+    private final AtomicLong maxExecMicros = new AtomicLong();
+
+    SqlFingerprintStats(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    void record(long rowCount, long acquire, long exec, boolean slow, boolean error) {
+        count.increment();
+        rows.add(rowCount);
+        execMicros.add(exec);
+        acquireMicros.add(acquire);
+        if (slow) {
+            slowCount.increment();
+        }
+        if (error) {
+            errorCount.increment();
+        }
+        long currentMax = maxExecMicros.get();
+        while (exec > currentMax && !maxExecMicros.compareAndSet(currentMax, exec)) {
+            currentMax = maxExecMicros.get();
+        }
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSlowCount() {
+        return slowCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getTotalRows() {
+        return rows.sum();
+    }
+
+    public long getTotalExecMicros() {
+        return execMicros.sum();
+    }
+
+    public long getAvgExecMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : execMicros.sum() / n;
+    }
+
+    public long getMaxExecMicros() {
+        return maxExecMicros.get();
+    }
+
+    public long getTotalAcquireMicros() {
+        return acquireMicros.sum();
+    }
+}
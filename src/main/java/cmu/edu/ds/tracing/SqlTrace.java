@@ -0,0 +1,18 @@
+package cmu.edu.ds.tracing;
+
+/**
+ * A single captured JDBC statement execution.
+ *
+ * @param timestampMillis Wall-clock time the statement finished executing
+ * @param fingerprint     Normalized SQL with literals replaced by '?'
+ * @param bindCount       Number of bind parameters set on the statement
+ * @param rows            Rows returned (queries) or affected (updates)
+ * @param acquireMicros   Time spent waiting for a pooled connection, attributed to
+ *                        the first statement executed on that connection
+ * @param execMicros      Time spent executing the statement and reading its results
+ * @param slow            Whether the execution crossed the slow-query threshold
+ * @param error           Whether the driver threw instead of completing the statement
+ */
+public record SqlTrace(long timestampMillis, String fingerprint, int bindCount, long rows,
+                       long acquireMicros, long execMicros, boolean slow, boolean error) {
+}
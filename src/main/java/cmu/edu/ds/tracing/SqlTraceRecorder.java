@@ -0,0 +1,86 @@
+package cmu.edu.ds.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects JDBC statement traces.
+ * Every execution updates the per-fingerprint aggregates; only a sample of
+ * normal executions is kept in the ring buffer, while failed executions and
+ * executions slower than the configured threshold are always kept.
+ */
+@Component
+public class SqlTraceRecorder {
+
+    private final ConcurrentMap<String, SqlFingerprintStats> stats = new ConcurrentHashMap<>();
+    private final SqlTraceRingBuffer buffer;
+    private final double sampleRate;
+    private final long slowThresholdMicros;
+
+    public SqlTraceRecorder(@Value("${sql.trace.buffer-size:4096}") int bufferSize,
+                            @Value("${sql.trace.sample-rate:0.01}") double sampleRate,
+                            @Value("${sql.trace.slow-threshold-ms:200}") long slowThresholdMs) {
+        this.buffer = new SqlTraceRingBuffer(bufferSize);
+        this.sampleRate = sampleRate;
+        this.slowThresholdMicros = TimeUnit.MILLISECONDS.toMicros(slowThresholdMs);
+    }
+
+    /**
+     * Records one statement execution.
+     *
+     * @param sql          The SQL text as passed to the driver
+     * @param bindCount    Number of bind parameters
+     * @param rows         Rows returned or affected
+     * @param acquireNanos Connection acquire time attributed to this statement
+     * @param execNanos    Execution time
+     * @param error        Whether the statement failed
+     */
+    public void record(String sql, int bindCount, long rows, long acquireNanos, long execNanos, boolean error) {
+        String fingerprint = SqlFingerprint.of(sql);
+        long acquireMicros = TimeUnit.NANOSECONDS.toMicros(acquireNanos);
+        long execMicros = TimeUnit.NANOSECONDS.toMicros(execNanos);
+        boolean slow = execMicros >= slowThresholdMicros;
+
+        stats.computeIfAbsent(fingerprint, SqlFingerprintStats::new)
+                .record(rows, acquireMicros, execMicros, slow, error);
+
+        // Failed statements are kept like slow ones, regardless of sampling
+        if (slow || error || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            buffer.add(new SqlTrace(System.currentTimeMillis(), fingerprint, bindCount, rows,
+                    acquireMicros, execMicros, slow, error));
+        }
+    }
+
+    /**
+     * Returns the per-fingerprint aggregates, most expensive (by total execution time) first.
+     * @return Aggregates for every fingerprint seen since startup
+     */
+    public List<SqlFingerprintStats> aggregates() {
+        List<SqlFingerprintStats> result = new ArrayList<>(stats.values());
+        result.sort(Comparator.comparingLong(SqlFingerprintStats::getTotalExecMicros).reversed());
+        return result;
+    }
+
+    /**
+     * Returns the sampled and slow traces currently held in the ring buffer, oldest first.
+     * @return Recent traces
+     */
+    public List<SqlTrace> recent() {
+        return buffer.snapshot();
+    }
+
+    /**
+     * Clears the per-fingerprint aggregates.
+     */
+    public void resetAggregates() {
+        stats.clear();
+    }
+}
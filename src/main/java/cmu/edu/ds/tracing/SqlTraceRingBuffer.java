@@ -0,0 +1,49 @@
+package cmu.edu.ds.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size, lock-free ring buffer of recent traces.
+ * Writers claim a slot with a single atomic increment and overwrite the oldest
+ * entry; they never block each other or the readers.
+ */
+class SqlTraceRingBuffer {
+
+    private final AtomicReferenceArray<SqlTrace> slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+     * @param requestedSize Minimum capacity; rounded up to the next power of two
+     */
+    SqlTraceRingBuffer(int requestedSize) {
+        int size = Integer.highestOneBit(Math.max(2, requestedSize - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void add(SqlTrace trace) {
+        long sequence = cursor.getAndIncrement();
+        slots.lazySet((int) (sequence & mask), trace);
+    }
+
+    /**
+     * Returns the buffered traces, oldest first.
+     * The snapshot is best-effort: entries written concurrently may or may not be included.
+     */
+    List<SqlTrace> snapshot() {
+        long end = cursor.get();
+        long start = Math.max(0, end - slots.length());
+        List<SqlTrace> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            SqlTrace trace = slots.get((int) (sequence & mask));
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+        return result;
+    }
+}
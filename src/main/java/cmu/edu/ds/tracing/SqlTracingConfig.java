@@ -0,0 +1,35 @@
+package cmu.edu.ds.tracing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every DataSource bean in a {@link TracingDataSource} so that both the
+ * JdbcTemplate repositories and JPA are traced. Disable with sql.trace.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sql.trace.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlTracingConfig {
+
+    /**
+     * Declared static so the post-processor is registered before the DataSource
+     * is created; the recorder is looked up lazily for the same reason.
+     */
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<SqlTraceRecorder> recorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof TracingDataSource)) {
+                    return new TracingDataSource(dataSource, recorder.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
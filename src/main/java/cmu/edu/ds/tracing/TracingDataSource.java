@@ -0,0 +1,218 @@
+package cmu.edu.ds.tracing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource wrapper that times connection acquisition and statement execution
+ * and hands the results to a {@link SqlTraceRecorder}.
+ * Connections and statements are wrapped in JDK dynamic proxies; result sets are
+ * wrapped in {@link TracingResultSet} so per-row column reads are not intercepted.
+ * The only per-statement work is a few counters and one call into the recorder.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    private final SqlTraceRecorder recorder;
+
+    public TracingDataSource(DataSource target, SqlTraceRecorder recorder) {
+        super(target);
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = obtainTargetDataSource().getConnection();
+        return wrap(connection, System.nanoTime() - start);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = obtainTargetDataSource().getConnection(username, password);
+        return wrap(connection, System.nanoTime() - start);
+    }
+
+    private Connection wrap(Connection connection, long acquireNanos) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection, acquireNanos));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Answers equals and hashCode on the proxy itself, so a proxy is equal only to
+     * itself and can be used in identity-based collections.
+     * @return The result, or null if the method is not an identity method
+     */
+    private static Object identityMethod(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> args != null && args.length == 1 ? proxy == args[0] : null;
+            case "hashCode" -> args == null || args.length == 0 ? System.identityHashCode(proxy) : null;
+            default -> null;
+        };
+    }
+
+    /**
+     * Wraps statements created from the connection. The acquire time is
+     * attributed to the first statement executed on the connection only.
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private long pendingAcquireNanos;
+
+        ConnectionHandler(Connection target, long acquireNanos) {
+            this.target = target;
+            this.pendingAcquireNanos = acquireNanos;
+        }
+
+        long takeAcquireNanos() {
+            long nanos = pendingAcquireNanos;
+            pendingAcquireNanos = 0;
+            return nanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identityMethod(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            Object result = TracingDataSource.invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                String name = method.getName();
+                String sql = (name.equals("prepareStatement") || name.equals("prepareCall")) ? (String) args[0] : null;
+                Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                        : statement instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                        new Class<?>[]{type}, new StatementHandler(statement, sql, this, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Counts bind parameters and times execute calls. For queries the trace is
+     * completed when the result set is closed, so the row count and the time
+     * spent streaming rows are included.
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final ConnectionHandler connection;
+        private final Connection connectionProxy;
+        private String sql;
+        private int bindCount;
+
+        private long pendingStart;
+        private long pendingAcquireNanos;
+        private boolean pending;
+
+        StatementHandler(Statement target, String sql, ConnectionHandler connection, Connection connectionProxy) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identityMethod(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute((Statement) proxy, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bindCount = Math.max(bindCount, index);
+            } else if (name.equals("clearParameters")) {
+                bindCount = 0;
+            } else if (name.equals("getResultSet")) {
+                ResultSet resultSet = (ResultSet) TracingDataSource.invoke(target, method, args);
+                return pending && resultSet != null ? wrapResultSet((Statement) proxy, resultSet) : resultSet;
+            } else if (name.equals("getConnection")) {
+                return connectionProxy;
+            } else if (name.equals("close")) {
+                finishPending(0);
+            }
+            return TracingDataSource.invoke(target, method, args);
+        }
+
+        private Object execute(Statement proxy, Method method, Object[] args) throws Throwable {
+            if (args != null && args.length > 0 && args[0] instanceof String statementSql) {
+                sql = statementSql;
+            }
+            finishPending(0);
+            long acquireNanos = connection.takeAcquireNanos();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = TracingDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                // Failed statements (lock waits, timeouts) are often the slowest, so trace them too
+                recorder.record(sql, bindCount, 0, acquireNanos, System.nanoTime() - start, true);
+                throw e;
+            }
+
+            if (result instanceof ResultSet resultSet) {
+                beginPending(start, acquireNanos);
+                return wrapResultSet(proxy, resultSet);
+            }
+            if (Boolean.TRUE.equals(result)) {
+                // execute() produced a result set; rows are counted once it is fetched and closed.
+                beginPending(start, acquireNanos);
+                return result;
+            }
+            long rows = 0;
+            if (result instanceof Number count) {
+                rows = count.longValue();
+            } else if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            recorder.record(sql, bindCount, rows, acquireNanos, System.nanoTime() - start, false);
+            return result;
+        }
+
+        private void beginPending(long start, long acquireNanos) {
+            pending = true;
+            pendingStart = start;
+            pendingAcquireNanos = acquireNanos;
+        }
+
+        void finishPending(long rows) {
+            if (pending) {
+                pending = false;
+                recorder.record(sql, bindCount, rows, pendingAcquireNanos, System.nanoTime() - pendingStart, false);
+            }
+        }
+
+        private ResultSet wrapResultSet(Statement proxy, ResultSet resultSet) {
+            return new TracingResultSet(resultSet, proxy, this::finishPending);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package cmu.edu.ds.config;
+
+import cmu.edu.ds.model.Books;
+import cmu.edu.ds.model.Customer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the Smile and CBOR mappers keep the JSON property names and round-trip the models.
+ */
+class BinaryContentConfigTest {
+
+    private final Map<String, ObjectMapper> mappers = BinaryFormats.mappers();
+
+    @Test
+    void binaryMappersUseBinaryFactories() {
+        assertThat(mappers.get("Smile").getFactory()).isInstanceOf(SmileFactory.class);
+        assertThat(mappers.get("CBOR").getFactory()).isInstanceOf(CBORFactory.class);
+    }
+
+    @Test
+    void bookPropertyNamesMatchJsonInEveryFormat() throws Exception {
+        Books book = sampleBook();
+        Set<String> jsonNames = propertyNames(mappers.get("JSON"), book);
+        assertThat(jsonNames).contains("ISBN", "Author");
+
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            assertThat(propertyNames(mapper, book)).as(entry.getKey()).isEqualTo(jsonNames);
+            Books decoded = mapper.readValue(mapper.writeValueAsBytes(book), Books.class);
+            assertThat(decoded).as(entry.getKey()).isEqualTo(book);
+        }
+    }
+
+    @Test
+    void customerPropertyNamesMatchJsonInEveryFormat() throws Exception {
+        Customer customer = sampleCustomer();
+        Set<String> jsonNames = propertyNames(mappers.get("JSON"), customer);
+        assertThat(jsonNames).contains("id", "userId", "zipcode");
+
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            assertThat(propertyNames(mapper, customer)).as(entry.getKey()).isEqualTo(jsonNames);
+            Customer decoded = mapper.readValue(mapper.writeValueAsBytes(customer), Customer.class);
+            assertThat(decoded).as(entry.getKey()).isEqualTo(customer);
+        }
+    }
+
+    private static Set<String> propertyNames(ObjectMapper mapper, Object value) throws Exception {
+        JsonNode tree = mapper.readTree(mapper.writeValueAsBytes(value));
+        Set<String> names = new TreeSet<>();
+        tree.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    static Books sampleBook() {
+        return new Books("978-0321815736", "Software Architecture in Practice", "Len Bass",
+                "Seminal book on software architecture, covering quality attributes, patterns and tactics.",
+                "non-fiction", 59.95, 106);
+    }
+
+    static Customer sampleCustomer() {
+        return new Customer(123456L, "starlord2002@gmail.com", "Star Lord", "+14122144122",
+                "48 Galaxy Rd", "suite 4", "Fargo", "ND", "58102");
+    }
+}
@@ -0,0 +1,130 @@
+package cmu.edu.ds.config;
+
+import cmu.edu.ds.controller.BookController;
+import cmu.edu.ds.controller.CustomerController;
+import cmu.edu.ds.model.Books;
+import cmu.edu.ds.model.Customer;
+import cmu.edu.ds.services.BookService;
+import cmu.edu.ds.services.CustomerService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks content negotiation through Spring MVC: Smile and CBOR requests and responses
+ * are handled by the registered converters, and JSON stays the default.
+ */
+@WebMvcTest({BookController.class, CustomerController.class})
+@Import(BinaryContentConfig.class)
+class BinaryContentNegotiationTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private final Map<String, ObjectMapper> mappers = BinaryFormats.mappers();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BookService bookService;
+
+    @MockitoBean
+    private CustomerService customerService;
+
+    @Test
+    void acceptsSmileRequestBodyAndAnswersInSmile() throws Exception {
+        Books book = BinaryContentConfigTest.sampleBook();
+        doAnswer(invocation -> ResponseEntity.status(201).body(invocation.getArgument(0)))
+                .when(bookService).addBook(any(Books.class), any());
+
+        MvcResult result = mockMvc.perform(post("/books")
+                        .contentType(SMILE)
+                        .accept(SMILE)
+                        .content(mappers.get("Smile").writeValueAsBytes(book)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentTypeCompatibleWith(SMILE))
+                .andReturn();
+
+        // The request was decoded (including ISBN and Author) and echoed back in Smile
+        assertBookFields(mappers.get("Smile"), result, book);
+        assertThat(mappers.get("Smile").readValue(result.getResponse().getContentAsByteArray(), Books.class))
+                .isEqualTo(book);
+    }
+
+    @Test
+    void answersGetInSmileOrCborByAcceptHeader() throws Exception {
+        Books book = BinaryContentConfigTest.sampleBook();
+        doReturn(ResponseEntity.ok(book)).when(bookService).getBookByIsbn(eq(book.getISBN()), isNull());
+
+        MvcResult smile = mockMvc.perform(get("/books/{isbn}", book.getISBN()).accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SMILE))
+                .andReturn();
+        assertBookFields(mappers.get("Smile"), smile, book);
+
+        MvcResult cbor = mockMvc.perform(get("/books/{isbn}", book.getISBN()).accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andReturn();
+        assertBookFields(mappers.get("CBOR"), cbor, book);
+    }
+
+    @Test
+    void answersCustomerGetInCbor() throws Exception {
+        Customer customer = BinaryContentConfigTest.sampleCustomer();
+        doReturn(ResponseEntity.ok(customer)).when(customerService).getCustomerById(eq(customer.getId()), isNull());
+
+        MvcResult result = mockMvc.perform(get("/customers/{id}", customer.getId()).accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andReturn();
+
+        assertThat(mappers.get("CBOR").readValue(result.getResponse().getContentAsByteArray(), Customer.class))
+                .isEqualTo(customer);
+    }
+
+    @Test
+    void jsonStaysTheDefault() throws Exception {
+        Books book = BinaryContentConfigTest.sampleBook();
+        doReturn(ResponseEntity.ok(book)).when(bookService).getBookByIsbn(eq(book.getISBN()), isNull());
+
+        MvcResult wildcard = mockMvc.perform(get("/books/{isbn}", book.getISBN()).header(HttpHeaders.ACCEPT, "*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn();
+        assertBookFields(mappers.get("JSON"), wildcard, book);
+
+        mockMvc.perform(get("/books/{isbn}", book.getISBN()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    private static void assertBookFields(ObjectMapper mapper, MvcResult result, Books book) throws Exception {
+        JsonNode tree = mapper.readTree(result.getResponse().getContentAsByteArray());
+        assertThat(tree.path("ISBN").asText()).isEqualTo(book.getISBN());
+        assertThat(tree.path("Author").asText()).isEqualTo(book.getAuthor());
+    }
+}
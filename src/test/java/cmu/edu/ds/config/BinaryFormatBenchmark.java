@@ -0,0 +1,65 @@
+package cmu.edu.ds.config;
+
+import cmu.edu.ds.model.Books;
+import cmu.edu.ds.model.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+/**
+ * Compares payload size and encode/decode cost of JSON, Smile and CBOR for the
+ * book and customer payloads served to the order service.
+ * Not run by the test suite; run {@link #main(String[])} from the IDE, or after
+ * {@code mvn test-compile} with the test classpath. Iteration counts can be
+ * overridden with -Dbench.warmup and -Dbench.iterations.
+ */
+public final class BinaryFormatBenchmark {
+
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 200_000);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 500_000);
+
+    // Consumed after each run so the JIT cannot drop the work
+    private static long blackhole;
+
+    private BinaryFormatBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, ObjectMapper> mappers = BinaryFormats.mappers();
+        System.out.printf("%-10s %-7s %8s %12s %12s%n", "payload", "format", "bytes", "encode ns", "decode ns");
+        run("Books", BinaryContentConfigTest.sampleBook(), Books.class, mappers);
+        run("Customer", BinaryContentConfigTest.sampleCustomer(), Customer.class, mappers);
+        System.out.println("checksum " + blackhole);
+    }
+
+    private static <T> void run(String name, T value, Class<T> type, Map<String, ObjectMapper> mappers) throws Exception {
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            byte[] payload = mapper.writeValueAsBytes(value);
+
+            measureEncode(mapper, value, WARMUP);
+            double encodeNanos = measureEncode(mapper, value, ITERATIONS);
+            measureDecode(mapper, payload, type, WARMUP);
+            double decodeNanos = measureDecode(mapper, payload, type, ITERATIONS);
+
+            System.out.printf("%-10s %-7s %8d %12.1f %12.1f%n",
+                    name, entry.getKey(), payload.length, encodeNanos, decodeNanos);
+        }
+    }
+
+    private static double measureEncode(ObjectMapper mapper, Object value, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            blackhole += mapper.writeValueAsBytes(value).length;
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    private static double measureDecode(ObjectMapper mapper, byte[] payload, Class<?> type, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            blackhole += mapper.readValue(payload, type).hashCode();
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+}
@@ -0,0 +1,35 @@
+package cmu.edu.ds.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds the JSON, Smile and CBOR mappers the way the application does:
+ * the binary ones through {@link BinaryContentConfig}, all from a builder set up
+ * like Spring Boot's (which also installs the parameter-names module).
+ */
+final class BinaryFormats {
+
+    private BinaryFormats() {
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        return new Jackson2ObjectMapperBuilder().modulesToInstall(new ParameterNamesModule());
+    }
+
+    /**
+     * @return Mappers keyed by format name, JSON first
+     */
+    static Map<String, ObjectMapper> mappers() {
+        BinaryContentConfig config = new BinaryContentConfig();
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("JSON", builder().build());
+        mappers.put("Smile", config.smileHttpMessageConverter(builder()).getObjectMapper());
+        mappers.put("CBOR", config.cborHttpMessageConverter(builder()).getObjectMapper());
+        return mappers;
+    }
+}
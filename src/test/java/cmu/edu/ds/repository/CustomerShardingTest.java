@@ -0,0 +1,322 @@
+package cmu.edu.ds.repository;
+
+import cmu.edu.ds.model.Customer;
+import cmu.edu.ds.services.CustomerService;
+import cmu.edu.ds.tracing.SqlTraceRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exercises customer sharding against several embedded H2 databases in MySQL mode.
+ */
+class CustomerShardingTest {
+
+    private static final int SHARD_COUNT = 3;
+    private static final int TARGET_SHARD_COUNT = 2;
+
+    private static final String CREATE_CUSTOMERS = "CREATE TABLE customers ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, userId VARCHAR(255) NOT NULL UNIQUE, name VARCHAR(255),"
+            + " phone VARCHAR(50), address VARCHAR(255), address2 VARCHAR(255), city VARCHAR(100),"
+            + " state VARCHAR(2), zipcode VARCHAR(10))";
+
+    private final List<String> shardUrls = new ArrayList<>();
+    private final List<String> targetUrls = new ArrayList<>();
+
+    private CustomerShardingProperties properties;
+    private CustomerShardRouter router;
+    private CustomerIdGenerator idGenerator;
+    private CustomerRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        String run = UUID.randomUUID().toString().replace("-", "");
+        properties = new CustomerShardingProperties();
+        properties.setIdBlockSize(10);
+        properties.setSequenceHeadroom(50);
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            String url = h2Url("shard" + i + "_" + run);
+            jdbc(url).execute(CREATE_CUSTOMERS);
+            shardUrls.add(url);
+            properties.getDatasources().add(shardConfig(url));
+        }
+        for (int i = 0; i < TARGET_SHARD_COUNT; i++) {
+            String url = h2Url("target" + i + "_" + run);
+            jdbc(url).execute(CREATE_CUSTOMERS);
+            targetUrls.add(url);
+            properties.getTargetDatasources().add(shardConfig(url));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.shutdown();
+        }
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    /**
+     * Builds the router, generator and repository. Called after any legacy rows are
+     * inserted, because the id sequence is seeded from the existing rows.
+     */
+    private void start() {
+        router = new CustomerShardRouter(null, null, properties,
+                new StaticListableBeanFactory().getBeanProvider(SqlTraceRecorder.class), false);
+        idGenerator = new CustomerIdGenerator(router, properties);
+        GroupCommitProperties groupCommit = new GroupCommitProperties();
+        groupCommit.setMaxDelayMs(0);
+        repository = new CustomerRepository(router, idGenerator, groupCommit, false, 1000, 0.01);
+    }
+
+    @Test
+    void routesByUserIdAndEncodesBucketInId() {
+        start();
+        for (int i = 0; i < 60; i++) {
+            Customer customer = customer("user" + i + "@example.com");
+            assertThat(repository.addCustomer(customer)).isEqualTo(1);
+
+            int bucket = CustomerShardRouter.bucketForUserId(customer.getUserId());
+            int expectedShard = CustomerShardRouter.shardIndexForBucket(bucket, SHARD_COUNT);
+            assertThat(CustomerShardRouter.bucketForId(customer.getId())).isEqualTo(bucket);
+            assertThat(router.shardForId(customer.getId()).index()).isEqualTo(expectedShard);
+            for (int shard = 0; shard < SHARD_COUNT; shard++) {
+                assertThat(countById(shardUrls.get(shard), customer.getId()))
+                        .isEqualTo(shard == expectedShard ? 1 : 0);
+            }
+
+            assertThat(repository.getCustomerById(customer.getId()))
+                    .hasValueSatisfying(found -> assertThat(found.getUserId()).isEqualTo(customer.getUserId()));
+            assertThat(repository.getCustomerByUserId(customer.getUserId()))
+                    .hasValueSatisfying(found -> assertThat(found.getId()).isEqualTo(customer.getId()));
+        }
+        // Every shard received some customers
+        for (String url : shardUrls) {
+            assertThat(count(url)).isPositive();
+        }
+    }
+
+    @Test
+    void decodesShardFromId() {
+        start();
+        assertThat(CustomerShardRouter.shardIndexForBucket(0, SHARD_COUNT)).isZero();
+        assertThat(CustomerShardRouter.shardIndexForBucket(CustomerShardRouter.BUCKETS - 1, SHARD_COUNT))
+                .isEqualTo(SHARD_COUNT - 1);
+        for (int bucket = 0; bucket < CustomerShardRouter.BUCKETS; bucket++) {
+            long id = (12345L << CustomerShardRouter.BUCKET_BITS) | bucket;
+            assertThat(CustomerShardRouter.bucketForId(id)).isEqualTo(bucket);
+            assertThat(router.shardForId(id).index())
+                    .isEqualTo(CustomerShardRouter.shardIndexForBucket(bucket, SHARD_COUNT));
+        }
+    }
+
+    @Test
+    void duplicateUserIdIsRejectedWith422() {
+        start();
+        CustomerService service = new CustomerService(repository);
+
+        ResponseEntity<?> created = service.addCustomer(customer("dup@example.com"), UriComponentsBuilder.newInstance());
+        assertThat(created.getStatusCode().value()).isEqualTo(201);
+
+        ResponseEntity<?> duplicate = service.addCustomer(customer("DUP@example.com"), UriComponentsBuilder.newInstance());
+        assertThat(duplicate.getStatusCode().value()).isEqualTo(422);
+
+        // The unique index is the last line of defence when the pre-check races
+        assertThatThrownBy(() -> repository.addCustomer(customer("dup@example.com")))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void legacyIdsAreFoundAfterResharding() {
+        // Rows created before sharding keep their auto-increment ids; a reshard placed them by userId
+        int legacyRows = 8;
+        int offShardZero = 0;
+        for (long id = 1; id <= legacyRows; id++) {
+            String userId = "legacy" + id + "@example.com";
+            int owner = CustomerShardRouter.shardIndexForBucket(CustomerShardRouter.bucketForUserId(userId), SHARD_COUNT);
+            insertDirect(jdbc(shardUrls.get(owner)), id, userId);
+            if (owner != 0) {
+                offShardZero++;
+            }
+        }
+        // Ids 1..8 all decode to shard 0, so rows elsewhere are only found by searching every shard
+        assertThat(offShardZero).isPositive();
+        start();
+
+        Customer fresh = customer("fresh@example.com");
+        repository.addCustomer(fresh);
+        assertThat(fresh.getId() >>> CustomerShardRouter.BUCKET_BITS)
+                .isEqualTo(((long) legacyRows >>> CustomerShardRouter.BUCKET_BITS) + 1);
+        assertThat(idGenerator.isLegacyId(legacyRows)).isTrue();
+        assertThat(idGenerator.isLegacyId(fresh.getId())).isFalse();
+
+        for (long id = 1; id <= legacyRows; id++) {
+            String userId = "legacy" + id + "@example.com";
+            assertThat(repository.getCustomerById(id))
+                    .hasValueSatisfying(found -> assertThat(found.getUserId()).isEqualTo(userId));
+            assertThat(repository.getCustomerFieldsById(id, List.of("userId")))
+                    .contains(Map.of("userId", userId));
+        }
+        assertThatThrownBy(() -> repository.getCustomerById(legacyRows + 1))
+                .isInstanceOf(EmptyResultDataAccessException.class);
+    }
+
+    @Test
+    void copyToTargetsIsRerunnable() {
+        start();
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Customer customer = customer("copy" + i + "@example.com");
+            repository.addCustomer(customer);
+            customers.add(customer);
+        }
+        CustomerResharder resharder = new CustomerResharder(router, properties, idGenerator);
+
+        assertThat(resharder.copyToTargets(7)).isEqualTo(40);
+        assertTargetsHold(customers);
+
+        // A write made during the first pass is picked up by the second
+        Customer late = customer("late@example.com");
+        repository.addCustomer(late);
+        customers.add(late);
+
+        assertThat(resharder.copyToTargets(7)).isEqualTo(41);
+        assertTargetsHold(customers);
+
+        long sourceNext = jdbc(shardUrls.get(0)).queryForObject(
+                "SELECT next_val FROM customer_id_sequence WHERE id = 1", Long.class);
+        long targetNext = jdbc(targetUrls.get(0)).queryForObject(
+                "SELECT next_val FROM customer_id_sequence WHERE id = 1", Long.class);
+        assertThat(targetNext).isEqualTo(sourceNext + properties.getSequenceHeadroom());
+    }
+
+    @Test
+    void catchUpPassCopiesWritesMadeOnPreviousShardsAfterCutover() {
+        start();
+        for (int i = 0; i < 20; i++) {
+            repository.addCustomer(customer("before" + i + "@example.com"));
+        }
+        new CustomerResharder(router, properties, idGenerator).copyToTargets(7);
+
+        // An instance not yet restarted still writes through the old shard list
+        Customer late = customer("late@example.com");
+        repository.addCustomer(late);
+
+        CustomerShardingProperties cutover = new CustomerShardingProperties();
+        cutover.setIdBlockSize(properties.getIdBlockSize());
+        cutover.setSequenceHeadroom(properties.getSequenceHeadroom());
+        cutover.setDatasources(properties.getTargetDatasources());
+        cutover.setSourceDatasources(properties.getDatasources());
+        CustomerShardRouter newRouter = new CustomerShardRouter(null, null, cutover,
+                new StaticListableBeanFactory().getBeanProvider(SqlTraceRecorder.class), false);
+        CustomerIdGenerator newIdGenerator = new CustomerIdGenerator(newRouter, cutover);
+        GroupCommitProperties groupCommit = new GroupCommitProperties();
+        groupCommit.setMaxDelayMs(0);
+        CustomerRepository newRepository = new CustomerRepository(newRouter, newIdGenerator, groupCommit, false, 1000, 0.01);
+        try {
+            Customer fresh = customer("fresh@example.com");
+            newRepository.addCustomer(fresh);
+            assertThat(newRepository.getCustomerByUserId(late.getUserId())).isEmpty();
+
+            assertThat(new CustomerResharder(newRouter, cutover, newIdGenerator).copyToTargets(7)).isEqualTo(21);
+
+            assertThat(newRepository.getCustomerById(late.getId()))
+                    .hasValueSatisfying(found -> assertThat(found.getUserId()).isEqualTo(late.getUserId()));
+            assertThat(newRepository.getCustomerByUserId(late.getUserId()))
+                    .hasValueSatisfying(found -> assertThat(found.getId()).isEqualTo(late.getId()));
+            // Rows written on the new shards since the cutover are kept
+            assertThat(newRepository.getCustomerById(fresh.getId())).isPresent();
+            assertThat(totalCount(targetUrls)).isEqualTo(22);
+        } finally {
+            newRepository.shutdown();
+            newRouter.shutdown();
+        }
+    }
+
+    @Test
+    void deleteMisplacedRemovesOnlyRowsOwnedByAnotherShard() {
+        start();
+        for (int i = 0; i < 20; i++) {
+            repository.addCustomer(customer("keep" + i + "@example.com"));
+        }
+        String userId = "stray@example.com";
+        int owner = router.shardForUserId(userId).index();
+        int wrongShard = (owner + 1) % SHARD_COUNT;
+        insertDirect(jdbc(shardUrls.get(wrongShard)),
+                idGenerator.nextId(CustomerShardRouter.bucketForUserId(userId)), userId);
+
+        long before = totalCount(shardUrls);
+        CustomerResharder resharder = new CustomerResharder(router, properties, idGenerator);
+
+        assertThat(resharder.deleteMisplaced(6)).isEqualTo(1);
+        assertThat(totalCount(shardUrls)).isEqualTo(before - 1);
+        assertThat(jdbc(shardUrls.get(wrongShard)).queryForObject(
+                "SELECT COUNT(*) FROM customers WHERE userId = ?", Integer.class, userId)).isZero();
+        assertThat(resharder.deleteMisplaced(6)).isZero();
+    }
+
+    private void assertTargetsHold(List<Customer> customers) {
+        assertThat(totalCount(targetUrls)).isEqualTo(customers.size());
+        for (Customer customer : customers) {
+            int expected = CustomerShardRouter.shardIndexForBucket(
+                    CustomerShardRouter.bucketForUserId(customer.getUserId()), TARGET_SHARD_COUNT);
+            assertThat(countById(targetUrls.get(expected), customer.getId())).isEqualTo(1);
+        }
+    }
+
+    private static String h2Url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+    }
+
+    private static CustomerShardingProperties.ShardDataSource shardConfig(String url) {
+        CustomerShardingProperties.ShardDataSource config = new CustomerShardingProperties.ShardDataSource();
+        config.setUrl(url);
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(4);
+        return config;
+    }
+
+    private static JdbcTemplate jdbc(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+
+    private static void insertDirect(JdbcTemplate jdbc, long id, String userId) {
+        Customer customer = customer(userId);
+        customer.setId(id);
+        jdbc.update(CustomerRepository.INSERT_SQL, CustomerRepository.insertArgs(customer));
+    }
+
+    private static int count(String url) {
+        return jdbc(url).queryForObject("SELECT COUNT(*) FROM customers", Integer.class);
+    }
+
+    private static long totalCount(List<String> urls) {
+        return urls.stream().mapToLong(CustomerShardingTest::count).sum();
+    }
+
+    private static int countById(String url, long id) {
+        return jdbc(url).queryForObject("SELECT COUNT(*) FROM customers WHERE id = ?", Integer.class, id);
+    }
+
+    private static Customer customer(String userId) {
+        return new Customer(0, userId, "Test User", "555-0100", "1 Main St", null, "Pittsburgh", "PA", "15213");
+    }
+}
@@ -0,0 +1,65 @@
+package cmu.edu.ds.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FieldProjectionTest {
+
+    private final FieldProjection books = BookRepository.BOOK_FIELDS;
+
+    @Test
+    void rejectsUnknownField() {
+        assertThatThrownBy(() -> books.parse("price,publisher"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("publisher");
+    }
+
+    @Test
+    void rejectsEmptyValue() {
+        assertThatThrownBy(() -> books.parse("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> books.parse(" ")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> books.parse(",,")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matchesCaseInsensitivelyAndDropsDuplicates() {
+        assertThat(books.parse("PRICE, isbn ,author,Price,ISBN")).containsExactly("ISBN", "Author", "price");
+    }
+
+    @Test
+    void returnsFieldsAndColumnsInWhitelistOrder() {
+        List<String> selected = books.parse("quantity,Author,price");
+
+        assertThat(selected).containsExactly("Author", "price", "quantity");
+        assertThat(books.selectSql(selected)).isEqualTo("SELECT author, price, quantity FROM books WHERE ISBN = ?");
+    }
+
+    @Test
+    void rowMapperUsesResponseKeys() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("ISBN")).thenReturn("978-0321815736");
+        when(rs.getString("author")).thenReturn("Len Bass");
+        when(rs.getDouble("price")).thenReturn(59.95);
+
+        Map<String, Object> row = books.rowMapper(books.parse("price,author,isbn")).mapRow(rs, 0);
+
+        assertThat(row).containsExactly(
+                Map.entry("ISBN", "978-0321815736"), Map.entry("Author", "Len Bass"), Map.entry("price", 59.95));
+    }
+
+    @Test
+    void cachesStatementPerFieldCombination() {
+        String first = books.selectSql(books.parse("price,quantity"));
+
+        assertThat(books.selectSql(books.parse("QUANTITY,price,price"))).isSameAs(first);
+        assertThat(books.selectSql(books.parse("price"))).isNotEqualTo(first);
+    }
+}
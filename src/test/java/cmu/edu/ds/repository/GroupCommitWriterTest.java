@@ -0,0 +1,190 @@
+package cmu.edu.ds.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exercises group commit against an embedded H2 database in MySQL mode.
+ * Rows named "block..." hold the flusher inside the binder until released, so the
+ * tests can fill the queue deterministically while the first write is in flight.
+ */
+class GroupCommitWriterTest {
+
+    private static final String INSERT_SQL = "INSERT INTO items (name) VALUES (?)";
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private GroupCommitWriter<String> writer;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:h2:mem:group_commit_" + UUID.randomUUID().toString().replace("-", "")
+                + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE items (name VARCHAR(50) PRIMARY KEY)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    void writesQueuedRowsAsOneBatch() throws Exception {
+        writer = writer(10, 100);
+        CompletableFuture<Integer> first = writer.submit("block");
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(writer.submit("row" + i));
+        }
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        for (CompletableFuture<Integer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+        assertThat(count()).isEqualTo(6);
+    }
+
+    @Test
+    void duplicateInBatchFailsOnlyThatCaller() throws Exception {
+        jdbcTemplate.update(INSERT_SQL, "taken");
+        writer = writer(10, 100);
+        writer.submit("block");
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Integer> before = writer.submit("before");
+        CompletableFuture<Integer> duplicate = writer.submit("taken");
+        CompletableFuture<Integer> after = writer.submit("after");
+        release.countDown();
+
+        assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(after.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        // BookService and CustomerService turn this into 422 for this caller only
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DuplicateKeyException.class);
+        assertThat(count()).isEqualTo(4);
+    }
+
+    @Test
+    void rejectsRowsWhenQueueIsFull() throws Exception {
+        writer = writer(1, 1);
+        CompletableFuture<Integer> inFlight = writer.submit("block");
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Integer> queued = writer.submit("queued");
+        CompletableFuture<Integer> rejected = writer.submit("rejected");
+
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(TransientDataAccessResourceException.class);
+        release.countDown();
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(count()).isEqualTo(2);
+    }
+
+    @Test
+    void writeTimesOutWhileRowIsStillPending() throws Exception {
+        GroupCommitProperties properties = properties(10, 100);
+        properties.setTimeoutMs(50);
+        writer = new GroupCommitWriter<>("items", INSERT_SQL, this::bind, jdbcTemplate, transactionTemplate, properties);
+        writer.submit("block");
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> writer.write("late"))
+                .isInstanceOf(QueryTimeoutException.class);
+        // The timed-out row is still written once the flusher catches up
+        release.countDown();
+        writer.close();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE name = 'late'", Integer.class))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void closeFlushesQueuedRowsAndRejectsNewOnes() throws Exception {
+        writer = writer(10, 100);
+        CompletableFuture<Integer> inFlight = writer.submit("block");
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queued.add(writer.submit("queued" + i));
+        }
+
+        Thread closer = new Thread(writer::close);
+        closer.start();
+        release.countDown();
+        closer.join(TimeUnit.SECONDS.toMillis(15));
+        assertThat(closer.isAlive()).isFalse();
+
+        // Nothing is left waiting: every queued caller has an outcome
+        assertThat(inFlight).isCompletedWithValue(1);
+        for (CompletableFuture<Integer> result : queued) {
+            assertThat(result).isCompletedWithValue(1);
+        }
+        assertThat(count()).isEqualTo(4);
+        assertThatThrownBy(() -> writer.write("after-close"))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    private GroupCommitWriter<String> writer(int maxQueueSize, int maxBatchSize) {
+        return new GroupCommitWriter<>("items", INSERT_SQL, this::bind, jdbcTemplate, transactionTemplate,
+                properties(maxQueueSize, maxBatchSize));
+    }
+
+    private static GroupCommitProperties properties(int maxQueueSize, int maxBatchSize) {
+        GroupCommitProperties properties = new GroupCommitProperties();
+        properties.setMaxQueueSize(maxQueueSize);
+        properties.setMaxBatchSize(maxBatchSize);
+        // No delay: the blocked row is flushed alone and everything queued behind it forms the next batch
+        properties.setMaxDelayMs(0);
+        properties.setTimeoutMs(5000);
+        return properties;
+    }
+
+    private Object[] bind(String name) {
+        if (name.startsWith("block")) {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new Object[]{name};
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+    }
+}
@@ -0,0 +1,125 @@
+package cmu.edu.ds.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshingKeyFilterTest {
+
+    @Test
+    void reportsEverythingPresentUntilFirstRebuild() {
+        RefreshingKeyFilter filter = new RefreshingKeyFilter(1000, 1e-6);
+        assertThat(filter.mightContain("anything")).isTrue();
+
+        filter.rebuild(sink -> sink.accept("scanned"));
+        assertThat(filter.mightContain("scanned")).isTrue();
+        assertThat(filter.mightContain("SCANNED")).isTrue();
+        assertThat(filter.mightContain("anything")).isFalse();
+    }
+
+    @Test
+    void keyPutDuringScanSurvivesSwap() throws Exception {
+        RefreshingKeyFilter filter = new RefreshingKeyFilter(1000, 1e-6);
+        filter.rebuild(sink -> { });
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch putDone = new CountDownLatch(1);
+
+        Thread rebuild = new Thread(() -> filter.rebuild(sink -> {
+            scanning.countDown();
+            await(putDone);
+        }));
+        rebuild.start();
+        assertThat(scanning.await(5, TimeUnit.SECONDS)).isTrue();
+        filter.put("during");
+        putDone.countDown();
+        rebuild.join(5000);
+
+        assertThat(filter.mightContain("during")).isTrue();
+    }
+
+    @Test
+    void keyPutBeforeScanButNotYetCommittedSurvivesSwap() {
+        RefreshingKeyFilter filter = new RefreshingKeyFilter(1000, 1e-6);
+        filter.rebuild(sink -> { });
+        // The insert has not committed, so the scan does not return the key
+        filter.put("uncommitted");
+        filter.rebuild(sink -> sink.accept("other"));
+
+        assertThat(filter.mightContain("uncommitted")).isTrue();
+        // Local keys are carried over one rebuild only; by then the insert has committed or failed
+        filter.rebuild(sink -> sink.accept("other"));
+        assertThat(filter.mightContain("uncommitted")).isFalse();
+    }
+
+    @Test
+    void failedScanKeepsPreviousFilterAndLocalKeys() {
+        RefreshingKeyFilter filter = new RefreshingKeyFilter(1000, 1e-6);
+        filter.rebuild(sink -> sink.accept("old"));
+        filter.put("local");
+
+        assertThatThrownBy(() -> filter.rebuild(sink -> {
+            throw new IllegalStateException("scan failed");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(filter.mightContain("old")).isTrue();
+
+        filter.rebuild(sink -> { });
+        assertThat(filter.mightContain("local")).isTrue();
+    }
+
+    @Test
+    void concurrentPutsAreNeverLostAcrossRebuilds() throws Exception {
+        RefreshingKeyFilter filter = new RefreshingKeyFilter(200_000, 0.01);
+        // Stands in for the table: a key is added once its insert commits
+        Set<String> committed = ConcurrentHashMap.newKeySet();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread rebuilder = new Thread(() -> {
+            while (!done.get()) {
+                filter.rebuild(sink -> committed.forEach(sink));
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        rebuilder.start();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int writer = t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String key = "key-" + writer + "-" + i;
+                    filter.put(key);
+                    committed.add(key);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        rebuilder.join();
+
+        List<String> lost = committed.stream().filter(key -> !filter.mightContain(key)).toList();
+        assertThat(lost).isEmpty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
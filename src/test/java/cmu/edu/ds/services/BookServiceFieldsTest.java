@@ -0,0 +1,84 @@
+package cmu.edu.ds.services;
+
+import cmu.edu.ds.model.Books;
+import cmu.edu.ds.repository.BookRepository;
+import cmu.edu.ds.repository.GroupCommitProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks ?fields= handling in BookService against an embedded H2 database in MySQL mode.
+ */
+class BookServiceFieldsTest {
+
+    private static final String ISBN = "978-0321815736";
+
+    private BookRepository repository;
+    private BookService service;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:h2:mem:books_" + UUID.randomUUID().toString().replace("-", "")
+                + ";MODE=MySQL;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE books (ISBN VARCHAR(20) PRIMARY KEY, title VARCHAR(255), author VARCHAR(255),"
+                + " description TEXT, genre VARCHAR(50), price DECIMAL(10, 2), quantity INT)");
+
+        GroupCommitProperties groupCommit = new GroupCommitProperties();
+        groupCommit.setMaxDelayMs(0);
+        repository = new BookRepository(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                groupCommit, false, 1000, 0.01);
+        repository.addBook(new Books(ISBN, "Software Architecture in Practice", "Len Bass",
+                "Seminal book on software architecture.", "non-fiction", 59.95, 106));
+
+        service = new BookService();
+        ReflectionTestUtils.setField(service, "bookRepository", repository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    @Test
+    void returnsOnlyRequestedFields() {
+        ResponseEntity<?> response = service.getBookByIsbn(ISBN, "price,quantity");
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat((Map<?, ?>) response.getBody()).containsOnlyKeys("price", "quantity")
+                .containsEntry("price", 59.95)
+                .containsEntry("quantity", 106);
+    }
+
+    @Test
+    void usesResponseKeysForRenamedFields() {
+        ResponseEntity<?> response = service.getBookByIsbn(ISBN, "author,isbn");
+
+        assertThat((Map<?, ?>) response.getBody()).containsOnlyKeys("ISBN", "Author");
+    }
+
+    @Test
+    void rejectsBadFieldsWith400() {
+        assertThat(service.getBookByIsbn(ISBN, "price,publisher").getStatusCode().value()).isEqualTo(400);
+        assertThat(service.getBookByIsbn(ISBN, ",,").getStatusCode().value()).isEqualTo(400);
+        assertThat(service.getBookByIsbn(ISBN, "").getStatusCode().value()).isEqualTo(400);
+    }
+
+    @Test
+    void unknownIsbnIs404() {
+        assertThat(service.getBookByIsbn("000-0000000000", "price").getStatusCode().value()).isEqualTo(404);
+    }
+}